@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -45,4 +45,8 @@ public interface UrlSettings {
 
     String EVENTLOG_RESOURCE = "events";
 
+    String STATISTICS_RESOURCE = "statistics";
+
+    String STATUS_RESOURCE = "status";
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -35,6 +35,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.n52.eventing.rest.VersionCounter;
+import org.n52.eventing.rest.Versioned;
 import org.n52.eventing.rest.parameters.ParameterDefinition;
 import org.n52.eventing.rest.parameters.ParameterInstance;
 import org.n52.eventing.rest.subscriptions.InvalidSubscriptionException;
@@ -51,12 +53,13 @@ import org.springframework.beans.factory.annotation.Autowired;
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class DeliveryMethodsServiceImpl implements DeliveryMethodsService, InitializingBean {
+public class DeliveryMethodsServiceImpl implements DeliveryMethodsService, Versioned, InitializingBean {
 
     @Autowired
     private DeliveryProviderRepository deliveryProviderRepository;
 
     private final Map<String, DeliveryMethodDefinition> methods = new HashMap<>();
+    private final VersionCounter version = new VersionCounter();
 
     public DeliveryMethodsServiceImpl() {
     }
@@ -87,6 +90,17 @@ public class DeliveryMethodsServiceImpl implements DeliveryMethodsService, Initi
                     mapParameters(dp.getParameters()));
             methods.put(dp.getIdentifier(), method);
         });
+        this.version.increment();
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version.getVersion();
+    }
+
+    @Override
+    public long getLastModified() {
+        return this.version.getLastModified();
     }
 
 
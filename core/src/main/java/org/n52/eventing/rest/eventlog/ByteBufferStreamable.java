@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * {@link Streamable} backed by a {@link ByteBuffer}, e.g. a slice of a
+ * memory-mapped segment. The content is never copied to the heap unless it
+ * is read through {@link #asStream()}.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class ByteBufferStreamable implements Streamable {
+
+    private final ByteBuffer content;
+    private final String contentType;
+
+    public ByteBufferStreamable(ByteBuffer content, String contentType) {
+        this.content = content.asReadOnlyBuffer();
+        this.contentType = contentType;
+    }
+
+    @Override
+    public InputStream asStream() {
+        return new ByteBufferInputStream(asByteBuffer());
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getContentLength() {
+        return content.remaining();
+    }
+
+    /**
+     * @return a read-only view on the content, positioned at its start
+     */
+    public ByteBuffer asByteBuffer() {
+        return content.duplicate();
+    }
+
+    /**
+     * @param streamable any streamable
+     * @return its content, without copying if it is buffer-backed
+     * @throws IOException if the content could not be read
+     */
+    public static ByteBuffer toByteBuffer(Streamable streamable) throws IOException {
+        if (streamable instanceof ByteBufferStreamable) {
+            return ((ByteBufferStreamable) streamable).asByteBuffer();
+        }
+        try (InputStream is = streamable.asStream()) {
+            return ByteBuffer.wrap(ByteStreams.toByteArray(is));
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * {@link Streamable} over gzip compressed content. {@link #asStream()}
+ * decompresses on the fly, the compressed bytes are available via
+ * {@link #getEncoded()} so they can be served with a matching
+ * <code>Content-Encoding</code>.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class CompressedStreamable implements Streamable {
+
+    public static final String GZIP = "gzip";
+
+    private final Streamable encoded;
+    private final int contentLength;
+
+    /**
+     * @param encoded the compressed content, carrying the original content type
+     * @param contentLength the length of the uncompressed content
+     */
+    public CompressedStreamable(Streamable encoded, int contentLength) {
+        this.encoded = encoded;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public InputStream asStream() {
+        return new InflatingInputStream(encoded);
+    }
+
+    @Override
+    public String getContentType() {
+        return encoded.getContentType();
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentEncoding() {
+        return GZIP;
+    }
+
+    /**
+     * @return the compressed content
+     */
+    public Streamable getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * creates the {@link GZIPInputStream} on first use, as its constructor
+     * already reads the header
+     */
+    private static class InflatingInputStream extends InputStream {
+
+        private final Streamable source;
+        private InputStream delegate;
+
+        InflatingInputStream(Streamable source) {
+            this.source = source;
+        }
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                delegate = new GZIPInputStream(source.asStream(), 8192);
+            }
+            return delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributes newly recorded events to the registered {@link EventLogListener}s.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogBroadcaster {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogBroadcaster.class.getName());
+
+    private final List<EventLogListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(EventLogListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(EventLogListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public void publish(Subscription subscription, EventHolder eh) {
+        for (EventLogListener l : this.listeners) {
+            try {
+                l.onEvent(subscription, eh);
+            }
+            catch (RuntimeException e) {
+                LOG.warn("Event log listener failed: {}", e.getMessage());
+                LOG.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.Optional;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.subscriptions.InvalidSubscriptionException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Determines the number of events retained in the event log of a
+ * subscription. A capacity requested through the subscription takes
+ * precedence over the capacity configured for its publication
+ * (<code>eventLog.capacity.publication.&lt;id&gt;</code>) and the default.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogCapacityResolver implements InitializingBean {
+
+    public static final int DEFAULT_CAPACITY = 20;
+    private static final int DEFAULT_MAXIMUM_CAPACITY = 10000;
+    private static final String PUBLICATION_PREFIX = "eventLog.capacity.publication.";
+
+    @Autowired
+    private Configuration config;
+
+    private int defaultCapacity = DEFAULT_CAPACITY;
+    private int maximumCapacity = DEFAULT_MAXIMUM_CAPACITY;
+
+    public EventLogCapacityResolver() {
+    }
+
+    public EventLogCapacityResolver(int defaultCapacity, int maximumCapacity) {
+        this.defaultCapacity = defaultCapacity;
+        this.maximumCapacity = maximumCapacity;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.config != null) {
+            this.defaultCapacity = this.config.getParameterAsInt("eventLog.capacity.default")
+                    .orElse(DEFAULT_CAPACITY);
+            this.maximumCapacity = this.config.getParameterAsInt("eventLog.capacity.maximum")
+                    .orElse(DEFAULT_MAXIMUM_CAPACITY);
+        }
+    }
+
+    /**
+     * validates the capacity requested by a new subscription
+     *
+     * @param subscription the subscription
+     * @throws InvalidSubscriptionException if the requested capacity is not
+     * within 1 and the configured maximum
+     */
+    public void validate(Subscription subscription) throws InvalidSubscriptionException {
+        Integer requested = subscription.getEventLogCapacity();
+        if (requested != null && (requested < 1 || requested > this.maximumCapacity)) {
+            throw new InvalidSubscriptionException(String.format(
+                    "eventLogCapacity must be between 1 and %s", this.maximumCapacity));
+        }
+    }
+
+    /**
+     * resolves the capacity of the given subscription. The subscription is
+     * not changed, so that subscriptions without a requested capacity follow
+     * the configuration. A requested capacity above a since lowered maximum
+     * is limited to the maximum.
+     *
+     * @param subscription the subscription
+     * @return the number of events to retain
+     */
+    public int resolve(Subscription subscription) {
+        Optional<Integer> configured = Optional.ofNullable(subscription.getEventLogCapacity());
+        if (!configured.isPresent() && this.config != null && subscription.getPublicationId() != null) {
+            configured = this.config.getParameterAsInt(PUBLICATION_PREFIX + subscription.getPublicationId());
+        }
+        return Math.max(1, Math.min(configured.orElse(this.defaultCapacity), this.maximumCapacity));
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -29,9 +29,9 @@ package org.n52.eventing.rest.eventlog;
 
 import org.n52.eventing.rest.model.impl.EventHolderImpl;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
-import org.joda.time.DateTime;
+import java.util.concurrent.atomic.AtomicLong;
 import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.statistics.MatchStatistics;
 import org.n52.subverse.delivery.DeliveryEndpoint;
 import org.n52.subverse.delivery.Streamable;
 
@@ -41,23 +41,82 @@ import org.n52.subverse.delivery.Streamable;
  */
 public class EventLogEndpoint implements DeliveryEndpoint {
 
+    /*
+    * distinguishes the ids of this run from the ones restored from a snapshot
+    */
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
     private final int maximumCapacity;
     private final SubscriptionImpl subscription;
     private final EventLogStore store;
-    private final AtomicInteger count = new AtomicInteger(1);
+    private final EventLogBroadcaster broadcaster;
+    private final EventLogWriter writer;
+    private final MatchStatistics statistics;
+    private final String idPrefix;
+    private final AtomicLong count = new AtomicLong(1);
 
     public EventLogEndpoint(int maximumCapacity, SubscriptionImpl subscription, EventLogStore store) {
+        this(maximumCapacity, subscription, store, null);
+    }
+
+    public EventLogEndpoint(int maximumCapacity, SubscriptionImpl subscription, EventLogStore store,
+            EventLogBroadcaster broadcaster) {
+        this(maximumCapacity, subscription, store, broadcaster, null);
+    }
+
+    /**
+     * @param maximumCapacity the number of events to retain
+     * @param subscription the subscription
+     * @param store the store
+     * @param broadcaster the broadcaster for new events, or null
+     * @param writer if not null and enabled, events are handed over to this
+     * writer instead of being stored on the delivery thread
+     */
+    public EventLogEndpoint(int maximumCapacity, SubscriptionImpl subscription, EventLogStore store,
+            EventLogBroadcaster broadcaster, EventLogWriter writer) {
+        this(maximumCapacity, subscription, store, broadcaster, writer, null);
+    }
+
+    /**
+     * @param maximumCapacity the number of events to retain
+     * @param subscription the subscription
+     * @param store the store
+     * @param broadcaster the broadcaster for new events, or null
+     * @param writer if not null and enabled, events are handed over to this
+     * writer instead of being stored on the delivery thread
+     * @param statistics counts the matches of the subscription, or null
+     */
+    public EventLogEndpoint(int maximumCapacity, SubscriptionImpl subscription, EventLogStore store,
+            EventLogBroadcaster broadcaster, EventLogWriter writer, MatchStatistics statistics) {
         this.maximumCapacity = maximumCapacity;
         this.subscription = subscription;
         this.store = store;
+        this.broadcaster = broadcaster;
+        this.writer = writer;
+        this.statistics = statistics;
+        this.idPrefix = subscription.getId() + "_match_" + RUN_ID + "_";
     }
 
 
     @Override
     public void deliver(Optional<Streamable> o, boolean asRaw) {
-        EventHolderImpl eh = new EventHolderImpl(String.format("%s_match_%s", subscription.getId(), count.getAndIncrement()),
-                new DateTime(), subscription, null, o);
+        if (this.statistics != null) {
+            this.statistics.recordMatch(subscription);
+        }
+
+        EventHolderImpl eh = new EventHolderImpl(idPrefix.concat(Long.toString(count.getAndIncrement())),
+                System.currentTimeMillis(), subscription, null, o);
+
+        if (this.writer != null && this.writer.isEnabled()) {
+            this.writer.submit(subscription, eh, maximumCapacity);
+            return;
+        }
+
         this.store.addEvent(subscription, eh, maximumCapacity);
+
+        if (this.broadcaster != null) {
+            this.broadcaster.publish(subscription, eh);
+        }
     }
 
     @Override
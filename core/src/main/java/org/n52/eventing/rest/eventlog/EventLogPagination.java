@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import org.joda.time.DateTime;
+import org.n52.eventing.rest.Pagination;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+
+/**
+ * Helpers for answering paginated event log queries. Pages are ordered by
+ * event time, newest first.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public final class EventLogPagination {
+
+    private static final Comparator<EventHolder> NEWEST_FIRST = (EventHolder a, EventHolder b) -> {
+        if (a instanceof EventHolderImpl && b instanceof EventHolderImpl) {
+            return ((EventHolderImpl) b).compareTo((EventHolderImpl) a);
+        }
+        return 0;
+    };
+
+    private EventLogPagination() {
+    }
+
+    /**
+     * sorts and pages a fully materialized result
+     *
+     * @param all the complete result
+     * @param page the requested page, null for everything
+     * @return the page, with the original total
+     */
+    public static QueryResult<EventHolder> page(QueryResult<EventHolder> all, Pagination page) {
+        if (page == null) {
+            return all;
+        }
+
+        List<EventHolder> sorted = new ArrayList<>(all.getResult());
+        sorted.sort(NEWEST_FIRST);
+
+        int from = Math.min(Math.max(page.getOffset(), 0), sorted.size());
+        int to = Math.min(from + Math.max(page.getLimit(), 0), sorted.size());
+        return new QueryResult<>(new ArrayList<>(sorted.subList(from, to)), all.getTotalHits());
+    }
+
+    /**
+     * filters a fully materialized result by event time
+     *
+     * @param all the complete result
+     * @param since the inclusive lower bound, null for none
+     * @param until the exclusive upper bound, null for none
+     * @return the events within the range
+     */
+    public static QueryResult<EventHolder> within(QueryResult<EventHolder> all, DateTime since, DateTime until) {
+        if (since == null && until == null) {
+            return all;
+        }
+
+        long from = lowerBound(since);
+        long to = upperBound(until);
+        List<EventHolder> result = all.getResult().stream()
+                .filter(eh -> {
+                    if (!(eh instanceof EventHolderImpl)) {
+                        return false;
+                    }
+                    long time = ((EventHolderImpl) eh).timestampMillis();
+                    return time != EventHolderImpl.UNKNOWN_TIME && time >= from && time < to;
+                })
+                .collect(Collectors.toList());
+        return new QueryResult<>(result, result.size());
+    }
+
+    /**
+     * @param since an inclusive lower bound, or null
+     * @return the bound in epoch millis
+     */
+    public static long lowerBound(DateTime since) {
+        return since != null ? since.getMillis() : Long.MIN_VALUE;
+    }
+
+    /**
+     * @param until an exclusive upper bound, or null
+     * @return the bound in epoch millis
+     */
+    public static long upperBound(DateTime until) {
+        return until != null ? until.getMillis() : Long.MAX_VALUE;
+    }
+
+    /**
+     * k-way merges the given buffers by event time. Only the entries up to
+     * the end of the requested page are visited.
+     *
+     * @param buffers the buffers to merge
+     * @param page the requested page
+     * @return the page, with the total number of retained events
+     */
+    public static QueryResult<EventHolder> merge(Collection<EventRingBuffer> buffers, Pagination page) {
+        long total = 0;
+        List<EventCursor> cursors = new ArrayList<>(buffers.size());
+        for (EventRingBuffer b : buffers) {
+            total += b.size();
+            cursors.add(b.newestFirst());
+        }
+        return merge(cursors, total, page);
+    }
+
+    /**
+     * k-way merges the events of the given buffers within a time range. The
+     * range is resolved per buffer by binary search.
+     *
+     * @param buffers the buffers to merge
+     * @param since the inclusive lower bound in epoch millis
+     * @param until the exclusive upper bound in epoch millis
+     * @param page the requested page, null for all events
+     * @return the page, with the total number of retained events in the range
+     */
+    public static QueryResult<EventHolder> merge(Collection<EventRingBuffer> buffers, long since, long until,
+            Pagination page) {
+        long total = 0;
+        List<EventCursor> cursors = new ArrayList<>(buffers.size());
+        for (EventRingBuffer b : buffers) {
+            total += b.count(since, until);
+            cursors.add(b.newestFirst(since, until));
+        }
+        return merge(cursors, total, page);
+    }
+
+    /**
+     * k-way merges the given cursors by event time. Events are only
+     * materialized for the requested page.
+     *
+     * @param cursors the cursors to merge, none advanced yet
+     * @param total the total number of events to report
+     * @param page the requested page, null for all events
+     * @return the page
+     */
+    public static QueryResult<EventHolder> merge(List<? extends EventCursor> cursors, long total, Pagination page) {
+        PriorityQueue<EventCursor> queue = new PriorityQueue<>(Math.max(cursors.size(), 1),
+                Comparator.comparingLong(EventCursor::timestamp).reversed());
+        for (EventCursor c : cursors) {
+            if (c.advance()) {
+                queue.add(c);
+            }
+        }
+
+        int skip = page != null ? Math.max(page.getOffset(), 0) : 0;
+        int limit = page != null ? Math.max(page.getLimit(), 0) : Integer.MAX_VALUE;
+        if (limit == 0) {
+            return new QueryResult<>(Collections.emptyList(), total);
+        }
+
+        List<EventHolder> result = new ArrayList<>(Math.min(limit, (int) Math.min(total, Integer.MAX_VALUE)));
+        while (!queue.isEmpty() && result.size() < limit) {
+            EventCursor c = queue.poll();
+            if (skip > 0) {
+                skip--;
+            }
+            else {
+                EventHolder event = c.event();
+                if (event != null) {
+                    result.add(event);
+                }
+            }
+
+            if (c.advance()) {
+                queue.add(c);
+            }
+        }
+
+        return new QueryResult<>(result, total);
+    }
+
+}
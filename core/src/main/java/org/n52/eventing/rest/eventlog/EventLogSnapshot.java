@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A binary snapshot of an in-memory event log in a single file, used for
+ * warm restarts. The file is laid out as:
+ *
+ * <pre>
+ * int   magic, int version
+ * int   number of subscriptions, each: str id, int capacity
+ * int   length, byte[length] record body, repeated for every event
+ * int   0 marks the end
+ * </pre>
+ *
+ * Strings and the record bodies use the {@link EventRecords} format. Events are written
+ * in the order of their time, so that the restored log evicts in the same
+ * order. A snapshot is written to a temporary file which then replaces the
+ * previous snapshot, and read by a sequential scan of the mapped file.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class EventLogSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogSnapshot.class.getName());
+
+    private static final int MAGIC = 0x45564c53;
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final long intervalMillis;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param file the snapshot file
+     * @param intervalMillis the interval of periodic snapshots, 0 to only
+     * write a snapshot on shutdown
+     */
+    EventLogSnapshot(Path file, long intervalMillis) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @param config the configuration
+     * @return the configured snapshot, or null if snapshots are disabled
+     */
+    static EventLogSnapshot fromConfiguration(Configuration config) {
+        if (config == null) {
+            return null;
+        }
+
+        Optional<String> file = config.getParameter("eventLog.snapshot.file");
+        if (!file.isPresent() || file.get().isEmpty()) {
+            return null;
+        }
+
+        int minutes = config.getParameterAsInt("eventLog.snapshot.intervalMinutes").orElse(0);
+        return new EventLogSnapshot(Paths.get(file.get()), TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    /**
+     * writes snapshots periodically, if configured
+     *
+     * @param task writes a snapshot
+     */
+    synchronized void start(Runnable task) {
+        if (this.intervalMillis <= 0 || this.executor != null) {
+            return;
+        }
+
+        this.executor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "event-log-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.scheduleWithFixedDelay(task, this.intervalMillis, this.intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @param logs the retained events per subscription id, oldest first
+     * @param capacities the capacity per subscription id
+     * @return the number of written events
+     * @throws IOException if the snapshot could not be written
+     */
+    synchronized int write(Map<String, List<EventHolder>> logs, Map<String, Integer> capacities)
+            throws IOException {
+        List<Map.Entry<String, EventHolder>> events = new ArrayList<>();
+        logs.forEach((String subscriptionId, List<EventHolder> log) -> {
+            log.forEach(eh -> events.add(new AbstractMap.SimpleImmutableEntry<>(subscriptionId, eh)));
+        });
+        events.sort(Comparator.comparingLong(e -> EventRecords.resolveTimestamp(e.getValue())));
+
+        long start = System.currentTimeMillis();
+        Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Channels.newOutputStream(channel), 1024 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(capacities.size());
+            for (Map.Entry<String, Integer> e : capacities.entrySet()) {
+                byte[] id = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeInt(e.getValue());
+            }
+
+            for (Map.Entry<String, EventHolder> e : events) {
+                EventHolder eh = e.getValue();
+                byte[] record;
+                try {
+                    record = EventRecords.encode(e.getKey(), null, eh, EventRecords.resolveTimestamp(eh), null);
+                }
+                catch (IOException ex) {
+                    /*
+                    * e.g. evicted while the snapshot was written
+                    */
+                    LOG.debug("Skipping event {} in snapshot: {}", eh.getId(), ex.getMessage());
+                    continue;
+                }
+                out.writeInt(record.length);
+                out.write(record);
+                count++;
+            }
+            out.writeInt(0);
+
+            /*
+            * the content has to be on the device before the rename, or a
+            * crash may leave an empty snapshot in place of the previous one
+            */
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Wrote {} events to event log snapshot {} in {} ms", count, this.file,
+                System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * restores the events of the last snapshot, if there is one. A damaged
+     * snapshot is restored up to the damage.
+     *
+     * @param target receives the events, oldest first
+     * @return the number of restored events
+     */
+    synchronized int restore(Restorer target) {
+        if (!Files.isRegularFile(this.file)) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                LOG.warn("Ignoring event log snapshot {} of an unknown format", this.file);
+                return 0;
+            }
+
+            int subscriptions = buffer.getInt();
+            Map<String, Integer> capacities = new HashMap<>(subscriptions * 2);
+            for (int i = 0; i < subscriptions; i++) {
+                capacities.put(EventRecords.readString(buffer), buffer.getInt());
+            }
+
+            int length;
+            while ((length = buffer.getInt()) > 0) {
+                ByteBuffer body = buffer.slice();
+                body.limit(length);
+                buffer.position(buffer.position() + length);
+
+                EventHolderImpl eh = EventRecords.decode(body, true);
+                String subscriptionId = eh.subscription().getId();
+                target.restore(subscriptionId, capacities.getOrDefault(subscriptionId,
+                        EventLogCapacityResolver.DEFAULT_CAPACITY), eh);
+                count++;
+            }
+        }
+        catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOG.warn("Event log snapshot {} is damaged, restored {} events: {}", this.file, count, e.getMessage());
+            LOG.debug(e.getMessage(), e);
+        }
+
+        LOG.info("Restored {} events from event log snapshot {} in {} ms", count, this.file,
+                System.currentTimeMillis() - start);
+        return count;
+    }
+
+    @FunctionalInterface
+    interface Restorer {
+
+        void restore(String subscriptionId, int capacity, EventHolder eh);
+
+    }
+
+}
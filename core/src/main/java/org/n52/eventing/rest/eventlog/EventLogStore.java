@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -29,7 +29,9 @@ package org.n52.eventing.rest.eventlog;
 
 import org.n52.eventing.rest.model.EventHolder;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import org.joda.time.DateTime;
 import org.n52.eventing.rest.Pagination;
 import org.n52.eventing.rest.QueryResult;
 import org.n52.eventing.rest.RequestContext;
@@ -52,16 +54,68 @@ public interface EventLogStore {
 
     QueryResult<EventHolder> getAllEvents();
 
+    /**
+     * @param pagination the requested page
+     * @return the page of events, newest first, and the total number of
+     * retained events
+     */
     default QueryResult<EventHolder> getAllEvents(Pagination pagination) {
-        return getAllEvents();
+        return EventLogPagination.page(getAllEvents(), pagination);
     };
 
+    /**
+     * @param since the lower bound of the event time, inclusive. null for no
+     * lower bound
+     * @param until the upper bound of the event time, exclusive. null for no
+     * upper bound
+     * @param pagination the requested page
+     * @return the page of events within the range, newest first, and the
+     * total number of retained events within the range
+     */
+    default QueryResult<EventHolder> getAllEvents(DateTime since, DateTime until, Pagination pagination) {
+        return EventLogPagination.page(EventLogPagination.within(getAllEvents(), since, until), pagination);
+    }
+
     QueryResult<EventHolder> getEventsForSubscription(Subscription subscription);
 
+    /**
+     * @param subscription the subscription
+     * @param pagination the requested page
+     * @return the page of events, newest first, and the total number of
+     * retained events of the subscription
+     */
     default QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, Pagination pagination) {
-        return getEventsForSubscription(subscription);
+        return EventLogPagination.page(getEventsForSubscription(subscription), pagination);
+    }
+
+    /**
+     * @param subscription the subscription
+     * @param since the lower bound of the event time, inclusive. null for no
+     * lower bound
+     * @param until the upper bound of the event time, exclusive. null for no
+     * upper bound
+     * @param pagination the requested page
+     * @return the page of events of the subscription within the range,
+     * newest first, and the total number of its retained events within the range
+     */
+    default QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, DateTime since,
+            DateTime until, Pagination pagination) {
+        return EventLogPagination.page(EventLogPagination.within(getEventsForSubscription(subscription),
+                since, until), pagination);
     }
 
     public Optional<EventHolder> getSingleEvent(String eventId, RequestContext context);
 
+    /**
+     * releases all events retained for a subscription
+     *
+     * @param subscriptionId the id of the removed subscription
+     */
+    void removeSubscription(String subscriptionId);
+
+    /**
+     * @return the memory retained per subscription id
+     */
+    Map<String, EventLogUsage> getUsage();
+
 }
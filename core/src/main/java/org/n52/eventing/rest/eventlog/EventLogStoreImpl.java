@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -29,42 +29,109 @@ package org.n52.eventing.rest.eventlog;
 
 import org.n52.eventing.rest.model.EventHolder;
 import com.google.common.collect.EvictingQueue;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.n52.eventing.rest.Configuration;
 import org.n52.eventing.rest.QueryResult;
 import org.n52.eventing.rest.RequestContext;
 import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
+ * In-memory {@link EventLogStore}. If <code>eventLog.snapshot.file</code> is
+ * configured, the retained events are written to an {@link EventLogSnapshot}
+ * on shutdown (and periodically) and restored on startup.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class EventLogStoreImpl implements EventLogStore {
+public class EventLogStoreImpl implements EventLogStore, InitializingBean, DisposableBean {
 
-    private final Map<Subscription, Collection<EventHolder>> internalStore = new HashMap<>();
-    private final Map<Subscription, Object> mutexes = new HashMap<>();
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogStoreImpl.class.getName());
+
+    private final Map<String, EvictingQueue<EventHolder>> internalStore = new ConcurrentHashMap<>();
+    private final Map<String, EventHolder> index = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private Configuration config;
+
+    @Autowired(required = false)
+    private PayloadCompressor compressor;
+
+    private EventLogSnapshot snapshot;
 
     @Override
-    public void addEvent(Subscription subscription, EventHolder eh, int maxCapacity) {
-        Collection<EventHolder> targetList;
-        synchronized (this) {
-            if (!this.internalStore.containsKey(subscription)) {
-                targetList = EvictingQueue.create(maxCapacity);
-                this.internalStore.put(subscription, targetList);
-                this.mutexes.put(subscription, new Object());
-            }
-            else {
-                targetList = this.internalStore.get(subscription);
+    public void afterPropertiesSet() throws Exception {
+        if (this.snapshot == null) {
+            this.snapshot = EventLogSnapshot.fromConfiguration(this.config);
+        }
+
+        /*
+        * restored before any subscription is registered
+        */
+        if (this.snapshot != null) {
+            this.snapshot.restore((String subscriptionId, int capacity, EventHolder eh) -> {
+                addEvent(((EventHolderImpl) eh).subscription(), eh, capacity);
+            });
+            this.snapshot.start(this::writeSnapshot);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.snapshot != null) {
+            this.snapshot.stop();
+            writeSnapshot();
+        }
+    }
+
+    void setSnapshot(EventLogSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    private void writeSnapshot() {
+        Map<String, List<EventHolder>> logs = new HashMap<>();
+        Map<String, Integer> capacities = new HashMap<>();
+        this.internalStore.forEach((String subscriptionId, EvictingQueue<EventHolder> coll) -> {
+            synchronized (coll) {
+                logs.put(subscriptionId, new ArrayList<>(coll));
+                capacities.put(subscriptionId, coll.size() + coll.remainingCapacity());
             }
+        });
+
+        try {
+            this.snapshot.write(logs, capacities);
         }
+        catch (IOException e) {
+            LOG.warn("Could not write event log snapshot: {}", e.getMessage());
+            LOG.debug(e.getMessage(), e);
+        }
+    }
 
-        synchronized (this.mutexes.get(subscription)) {
+    @Override
+    public void addEvent(Subscription subscription, EventHolder event, int maxCapacity) {
+        EventHolder eh = compressor != null ? compressor.compress(subscription, event) : event;
+
+        EvictingQueue<EventHolder> targetList = this.internalStore.computeIfAbsent(subscription.getId(),
+                id -> EvictingQueue.create(maxCapacity));
+
+        synchronized (targetList) {
+            EventHolder evicted = targetList.remainingCapacity() == 0 ? targetList.peek() : null;
             targetList.add(eh);
+            index.put(eh.getId(), eh);
+            if (evicted != null) {
+                index.remove(evicted.getId(), evicted);
+            }
         }
     }
 
@@ -72,31 +139,56 @@ public class EventLogStoreImpl implements EventLogStore {
     public QueryResult<EventHolder> getAllEvents() {
         List<EventHolder> result = new ArrayList<>();
 
-        synchronized (this) {
-            this.internalStore.values().forEach(coll -> {
+        this.internalStore.values().forEach(coll -> {
+            synchronized (coll) {
                 result.addAll(coll);
-            });
-        }
+            }
+        });
 
         return new QueryResult<>(result, result.size());
     }
 
     @Override
     public QueryResult<EventHolder> getEventsForSubscription(Subscription sub) {
-        synchronized (this) {
-            if (!this.internalStore.containsKey(sub)) {
-                return new QueryResult<>(Collections.emptyList(), 0);
-            }
-            List<EventHolder> data = new ArrayList(this.internalStore.get(sub));
-            return new QueryResult<>(data, data.size());
+        EvictingQueue<EventHolder> coll = this.internalStore.get(sub.getId());
+        if (coll == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+
+        List<EventHolder> data;
+        synchronized (coll) {
+            data = new ArrayList<>(coll);
         }
+        return new QueryResult<>(data, data.size());
     }
 
     @Override
     public Optional<EventHolder> getSingleEvent(String eventId, RequestContext context) {
-        return getAllEvents().getResult().stream()
-                .filter(eh -> eh.getId().equals(eventId))
-                .findFirst();
+        return Optional.ofNullable(index.get(eventId));
+    }
+
+    @Override
+    public void removeSubscription(String subscriptionId) {
+        EvictingQueue<EventHolder> coll = this.internalStore.remove(subscriptionId);
+        if (coll != null) {
+            synchronized (coll) {
+                coll.forEach(eh -> index.remove(eh.getId(), eh));
+                coll.clear();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, EventLogUsage> getUsage() {
+        Map<String, EventLogUsage> result = new HashMap<>();
+        this.internalStore.forEach((String subscriptionId, EvictingQueue<EventHolder> coll) -> {
+            EventLogUsage usage = new EventLogUsage();
+            synchronized (coll) {
+                coll.forEach(usage::add);
+            }
+            result.put(subscriptionId, usage);
+        });
+        return result;
     }
 
 }
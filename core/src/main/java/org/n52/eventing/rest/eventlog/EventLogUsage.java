@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.nio.ByteBuffer;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * The memory retained by the event log of one subscription. Heap sizes are
+ * estimates based on typical object layouts of a 64 bit JVM with compressed
+ * references.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogUsage {
+
+    private static final int EVENT_OVERHEAD = 96;
+    private static final int STREAMABLE_OVERHEAD = 48;
+    private static final int STRING_OVERHEAD = 40;
+
+    private long events;
+    private long heapBytes;
+    private long offHeapBytes;
+
+    public EventLogUsage() {
+    }
+
+    public EventLogUsage(long events, long heapBytes, long offHeapBytes) {
+        this.events = events;
+        this.heapBytes = heapBytes;
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * accounts a retained event
+     *
+     * @param eh the event
+     */
+    void add(EventHolder eh) {
+        this.events++;
+        this.heapBytes += EVENT_OVERHEAD + sizeOf(eh.getId()) + sizeOf(eh.getContent());
+        if (eh instanceof EventHolderImpl) {
+            this.heapBytes += sizeOf(((EventHolderImpl) eh).getLabel());
+        }
+        eh.streamableObject().ifPresent(this::add);
+    }
+
+    private void add(Streamable content) {
+        this.heapBytes += STREAMABLE_OVERHEAD;
+        if (content instanceof CompressedStreamable) {
+            add(((CompressedStreamable) content).getEncoded());
+        }
+        else if (content instanceof OffHeapStreamable) {
+            this.offHeapBytes += ((OffHeapStreamable) content).getPayload().getLength();
+        }
+        else if (content instanceof ByteBufferStreamable) {
+            ByteBuffer buffer = ((ByteBufferStreamable) content).asByteBuffer();
+            if (buffer.isDirect()) {
+                this.offHeapBytes += buffer.remaining();
+            }
+            else {
+                this.heapBytes += buffer.remaining();
+            }
+        }
+    }
+
+    /**
+     * accounts memory that is not attributable to single events
+     *
+     * @param bytes the number of heap bytes
+     */
+    void addHeapBytes(long bytes) {
+        this.heapBytes += bytes;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+}
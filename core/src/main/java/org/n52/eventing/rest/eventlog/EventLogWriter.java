@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Writes events into the {@link EventLogStore} on a dedicated thread, so that
+ * the delivery of matches never waits for the event log. Producers append to
+ * a bounded lock-free queue that is drained in batches by the single writer.
+ * Events are dropped (and counted) if the queue is full.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogWriter.class.getName());
+
+    private static final int DEFAULT_QUEUE_SIZE = 65536;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Autowired
+    private Configuration config;
+
+    @Autowired
+    private EventLogStore store;
+
+    @Autowired(required = false)
+    private EventLogBroadcaster broadcaster;
+
+    private boolean enabled;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final Queue<PendingEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running;
+    private volatile boolean idle;
+    private Thread writer;
+
+    public EventLogWriter() {
+    }
+
+    public EventLogWriter(EventLogStore store, EventLogBroadcaster broadcaster, int queueSize, int batchSize) {
+        this.store = store;
+        this.broadcaster = broadcaster;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.enabled = true;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.config != null) {
+            this.enabled = this.config.getParameterAsBoolean("eventLog.async.enabled").orElse(false);
+            this.queueSize = this.config.getParameterAsInt("eventLog.async.queueSize").orElse(DEFAULT_QUEUE_SIZE);
+            this.batchSize = this.config.getParameterAsInt("eventLog.async.batchSize").orElse(DEFAULT_BATCH_SIZE);
+        }
+
+        if (this.enabled) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        if (this.writer != null) {
+            return;
+        }
+
+        this.running = true;
+        this.writer = new Thread(this::run, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        LOG.info("Writing the event log asynchronously, queue size {}", this.queueSize);
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (this.writer == null) {
+            return;
+        }
+
+        this.running = false;
+        LockSupport.unpark(this.writer);
+        this.writer.join(TimeUnit.SECONDS.toMillis(10));
+        this.writer = null;
+    }
+
+    /**
+     * @return true if events shall be submitted to this writer
+     */
+    public boolean isEnabled() {
+        return this.enabled && this.running;
+    }
+
+    /**
+     * queues an event for the store. Never blocks.
+     *
+     * @param subscription the subscription
+     * @param eh the event
+     * @param maximumCapacity the maximum capacity to store for the subscription
+     * @return false if the queue was full and the event has been dropped
+     */
+    public boolean submit(Subscription subscription, EventHolder eh, int maximumCapacity) {
+        if (this.pending.incrementAndGet() > this.queueSize) {
+            this.pending.decrementAndGet();
+            this.dropped.increment();
+            return false;
+        }
+
+        this.queue.offer(new PendingEvent(subscription, eh, maximumCapacity));
+        if (this.idle) {
+            LockSupport.unpark(this.writer);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedEvents() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * @return the number of queued events
+     */
+    public int getPendingEvents() {
+        return this.pending.get();
+    }
+
+    private void run() {
+        List<PendingEvent> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            if (drain(batch) == 0) {
+                /*
+                * announce the idle state before the final check, so that
+                * producers see it and unpark this thread
+                */
+                this.idle = true;
+                if (this.queue.isEmpty() && this.running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                this.idle = false;
+            }
+        }
+
+        /*
+        * write what has been accepted before shutdown
+        */
+        while (!this.queue.isEmpty()) {
+            drain(batch);
+        }
+    }
+
+    private int drain(List<PendingEvent> batch) {
+        PendingEvent pe;
+        while (batch.size() < this.batchSize && (pe = this.queue.poll()) != null) {
+            batch.add(pe);
+        }
+
+        int count = batch.size();
+        if (count == 0) {
+            return 0;
+        }
+        this.pending.addAndGet(-count);
+
+        for (PendingEvent e : batch) {
+            try {
+                this.store.addEvent(e.subscription, e.event, e.maximumCapacity);
+            }
+            catch (RuntimeException ex) {
+                LOG.warn("Could not write event {} to the event log: {}", e.event.getId(), ex.getMessage());
+                LOG.debug(ex.getMessage(), ex);
+            }
+        }
+
+        if (this.broadcaster != null) {
+            for (PendingEvent e : batch) {
+                this.broadcaster.publish(e.subscription, e.event);
+            }
+        }
+
+        batch.clear();
+        return count;
+    }
+
+    private static final class PendingEvent {
+
+        private final Subscription subscription;
+        private final EventHolder event;
+        private final int maximumCapacity;
+
+        private PendingEvent(Subscription subscription, EventHolder event, int maximumCapacity) {
+            this.subscription = subscription;
+            this.event = event;
+            this.maximumCapacity = maximumCapacity;
+        }
+
+    }
+
+}
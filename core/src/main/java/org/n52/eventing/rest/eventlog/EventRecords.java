@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * The binary record format of a single event, shared by the
+ * {@link SegmentedEventLogStore} and the {@link EventLogSnapshot}. A record
+ * body is laid out as:
+ *
+ * <pre>
+ * long  timestamp in epoch millis
+ * str   subscription id
+ * str   event id
+ * str   label
+ * str   content type
+ * int   uncompressed length, -1 if the payload is not gzip compressed
+ * int   payload length, -1 if there is no content
+ * byte[payload length] payload
+ * </pre>
+ *
+ * Strings are written as their UTF-8 length (-1 for null) and bytes.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+final class EventRecords {
+
+    private EventRecords() {
+    }
+
+    /**
+     * @param subscriptionId the subscription id
+     * @param publicationId the publication of the subscription, used for
+     * compression statistics
+     * @param eh the event
+     * @param timestamp the event time in epoch millis
+     * @param compressor compresses uncompressed content, may be null
+     * @return the record body
+     * @throws IOException if the event content could not be read
+     */
+    static byte[] encode(String subscriptionId, String publicationId, EventHolder eh, long timestamp,
+            PayloadCompressor compressor) throws IOException {
+        byte[] subscription = bytes(subscriptionId);
+        byte[] id = bytes(eh.getId());
+        byte[] label = null;
+        if (eh instanceof EventHolderImpl) {
+            label = bytes(((EventHolderImpl) eh).getLabel());
+        }
+
+        byte[] contentType = null;
+        int originalLength = -1;
+        ByteBuffer payload = null;
+        Optional<Streamable> streamable = eh.streamableObject();
+        if (streamable != null && streamable.isPresent()) {
+            Streamable s = streamable.get();
+            contentType = bytes(s.getContentType());
+            if (s instanceof CompressedStreamable) {
+                originalLength = ((CompressedStreamable) s).getContentLength();
+                payload = ByteBufferStreamable.toByteBuffer(((CompressedStreamable) s).getEncoded());
+            }
+            else {
+                payload = ByteBufferStreamable.toByteBuffer(s);
+                byte[] compressed = compressor != null ? compressor.compress(publicationId, payload) : null;
+                if (compressed != null) {
+                    originalLength = payload.remaining();
+                    payload = ByteBuffer.wrap(compressed);
+                }
+            }
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(8 + length(subscription) + length(id) + length(label)
+                + length(contentType) + 8 + (payload == null ? 0 : payload.remaining()));
+        body.putLong(timestamp);
+        writeBytes(body, subscription);
+        writeBytes(body, id);
+        writeBytes(body, label);
+        writeBytes(body, contentType);
+        body.putInt(originalLength);
+        if (payload == null) {
+            body.putInt(-1);
+        }
+        else {
+            body.putInt(payload.remaining());
+            body.put(payload.duplicate());
+        }
+        return body.array();
+    }
+
+    /**
+     * @param body the record body, positioned at its start
+     * @param copyPayload true to copy the payload to the heap, false to
+     * slice it from the body
+     * @return the decoded event
+     */
+    static EventHolderImpl decode(ByteBuffer body, boolean copyPayload) {
+        long timestamp = body.getLong();
+        String subscriptionId = readString(body);
+        String eventId = readString(body);
+        String label = readString(body);
+        String contentType = readString(body);
+        int originalLength = body.getInt();
+        int payloadLength = body.getInt();
+
+        Optional<Streamable> streamable = Optional.empty();
+        if (payloadLength >= 0) {
+            ByteBuffer payload;
+            if (copyPayload) {
+                byte[] copy = new byte[payloadLength];
+                body.get(copy);
+                payload = ByteBuffer.wrap(copy);
+            }
+            else {
+                payload = body.slice();
+                payload.limit(payloadLength);
+                body.position(body.position() + payloadLength);
+            }
+
+            Streamable content = new ByteBufferStreamable(payload, contentType);
+            if (originalLength >= 0) {
+                content = new CompressedStreamable(content, originalLength);
+            }
+            streamable = Optional.of(content);
+        }
+
+        return new EventHolderImpl(eventId, timestamp, new SubscriptionImpl(subscriptionId, null, null),
+                label, streamable);
+    }
+
+    static String readString(ByteBuffer source) {
+        int length = source.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        source.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static long resolveTimestamp(EventHolder eh) {
+        if (eh instanceof EventHolderImpl && ((EventHolderImpl) eh).timestampMillis() != EventHolderImpl.UNKNOWN_TIME) {
+            return ((EventHolderImpl) eh).timestampMillis();
+        }
+        return System.currentTimeMillis();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void writeBytes(ByteBuffer target, byte[] value) {
+        if (value == null) {
+            target.putInt(-1);
+        }
+        else {
+            target.putInt(value.length);
+            target.put(value);
+        }
+    }
+
+}
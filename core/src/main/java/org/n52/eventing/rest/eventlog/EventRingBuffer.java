@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+
+/**
+ * A fixed-capacity ring buffer holding the most recent events of a single
+ * subscription. Writers are serialized on a private lock, readers never block:
+ * every slot carries the sequence number it was written with, so a reader can
+ * detect slots that have been overwritten while it was copying.
+ * Every entry is stamped with the event's time, clamped so that the stamps
+ * never decrease within one buffer. Besides being overwritten, the oldest
+ * entries can be evicted explicitly.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventRingBuffer {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry> slots;
+    private final Object writeLock = new Object();
+
+    /**
+     * the sequence number of the next write. all slots with a lower sequence
+     * are fully published once this value has been read
+     */
+    private volatile long head;
+
+    /**
+     * the lowest sequence that has not been evicted explicitly
+     */
+    private volatile long tail;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * adds an event to the buffer
+     *
+     * @param eh the event
+     * @return the event that has been evicted to make room, or null
+     */
+    public EventHolder add(EventHolder eh) {
+        synchronized (writeLock) {
+            long seq = head;
+            int index = indexOf(seq);
+            Entry previous = slots.get(index);
+            lastTimestamp = Math.max(lastTimestamp, resolveTimestamp(eh));
+            slots.set(index, new Entry(seq, lastTimestamp, eh));
+            head = seq + 1;
+            return previous != null ? previous.event : null;
+        }
+    }
+
+    /**
+     * evicts the oldest events, up to and including the given one. Nothing is
+     * evicted if the event is not retained (anymore).
+     *
+     * @param eh the newest event to evict
+     * @return the evicted events, oldest first
+     */
+    public List<EventHolder> evictThrough(EventHolder eh) {
+        synchronized (writeLock) {
+            long from = firstSequence(head);
+            for (long seq = from; seq < head; seq++) {
+                Entry e = slots.get(indexOf(seq));
+                if (e != null && e.sequence == seq && e.event == eh) {
+                    List<EventHolder> result = new ArrayList<>((int) (seq - from + 1));
+                    for (long s = from; s <= seq; s++) {
+                        Entry evicted = slots.getAndSet(indexOf(s), null);
+                        if (evicted != null) {
+                            result.add(evicted.event);
+                        }
+                    }
+                    tail = seq + 1;
+                    return result;
+                }
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * evicts all retained events
+     *
+     * @return the evicted events, oldest first
+     */
+    public List<EventHolder> clear() {
+        synchronized (writeLock) {
+            long from = firstSequence(head);
+            List<EventHolder> result = new ArrayList<>((int) (head - from));
+            for (long seq = from; seq < head; seq++) {
+                Entry evicted = slots.getAndSet(indexOf(seq), null);
+                if (evicted != null) {
+                    result.add(evicted.event);
+                }
+            }
+            tail = head;
+            return result;
+        }
+    }
+
+    /**
+     * @return a consistent copy of the retained events, oldest first
+     */
+    public List<EventHolder> snapshot() {
+        long h = head;
+        long from = firstSequence(h);
+        List<EventHolder> result = new ArrayList<>((int) Math.max(0, h - from));
+        for (long seq = from; seq < h; seq++) {
+            Entry e = slots.get(indexOf(seq));
+            // a newer sequence means the slot was overwritten during the copy
+            if (e != null && e.sequence == seq) {
+                result.add(e.event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a cursor over the currently retained events, newest first
+     */
+    public Cursor newestFirst() {
+        long h = head;
+        return new Cursor(h, firstSequence(h));
+    }
+
+    /**
+     * @param since the lower bound in epoch millis, inclusive
+     * @param until the upper bound in epoch millis, exclusive
+     * @return a cursor over the retained events within the given range,
+     * newest first. The bounds are resolved by binary search.
+     */
+    public Cursor newestFirst(long since, long until) {
+        long h = head;
+        long first = firstSequence(h);
+        return new Cursor(search(first, h, until), search(first, h, since));
+    }
+
+    /**
+     * @param since the lower bound in epoch millis, inclusive
+     * @param until the upper bound in epoch millis, exclusive
+     * @return the number of retained events within the given range
+     */
+    public int count(long since, long until) {
+        long h = head;
+        long first = firstSequence(h);
+        return (int) Math.max(0, search(first, h, until) - search(first, h, since));
+    }
+
+    /**
+     * @return the lowest sequence in [from, to) with a timestamp of at least
+     * the given one, or to. Slots overwritten during the search count as older.
+     */
+    private long search(long from, long to, long timestamp) {
+        long low = from;
+        long high = to;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            Entry e = slots.get(indexOf(mid));
+            if (e == null || e.sequence != mid || e.timestamp < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        long h = head;
+        return (int) Math.max(0, h - firstSequence(h));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private long firstSequence(long h) {
+        return Math.max(tail, Math.max(0, h - capacity));
+    }
+
+    private int indexOf(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private static long resolveTimestamp(EventHolder eh) {
+        if (eh instanceof EventHolderImpl && ((EventHolderImpl) eh).timestampMillis() != EventHolderImpl.UNKNOWN_TIME) {
+            return ((EventHolderImpl) eh).timestampMillis();
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Walks the buffer backwards, starting below the end position determined
+     * on creation. Iteration ends early when the writer has overtaken the
+     * cursor, as all older slots are overwritten as well then.
+     */
+    public final class Cursor implements EventCursor {
+
+        private final long lowerBound;
+        private long next;
+        private Entry current;
+
+        private Cursor(long end, long lowerBound) {
+            this.next = end - 1;
+            this.lowerBound = lowerBound;
+        }
+
+        @Override
+        public boolean advance() {
+            if (next < lowerBound) {
+                current = null;
+                return false;
+            }
+
+            Entry e = slots.get(indexOf(next));
+            if (e == null || e.sequence != next) {
+                next = lowerBound - 1;
+                current = null;
+                return false;
+            }
+
+            next--;
+            current = e;
+            return true;
+        }
+
+        @Override
+        public EventHolder event() {
+            return current.event;
+        }
+
+        @Override
+        public long timestamp() {
+            return current.timestamp;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final long sequence;
+        private final long timestamp;
+        private final EventHolder event;
+
+        private Entry(long sequence, long timestamp, EventHolder event) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.event = event;
+        }
+
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A memory-mapped, append-only segment file of a {@link SegmentedEventLogStore}.
+ * Each record is laid out as:
+ *
+ * <pre>
+ * int   length of the body, 0 marks the end of the data
+ * int   CRC32 of the body
+ * byte[length] body
+ * </pre>
+ *
+ * The length is written last, so a record only becomes visible to a
+ * recovery scan once it is complete. Torn writes caused by an operating
+ * system crash are detected by the checksum.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class LogSegment {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogSegment.class.getName());
+
+    static final String FILE_SUFFIX = ".log";
+    static final int HEADER_SIZE = 8;
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private volatile long lastTimestamp;
+
+    private LogSegment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * creates a new, empty segment of the given size
+     *
+     * @param directory the log directory
+     * @param id the segment id, determines the file name
+     * @param size the size of the mapped file in bytes
+     * @return the new segment
+     * @throws IOException on file system errors
+     */
+    static LogSegment create(Path directory, long id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        return new LogSegment(id, path, map(path, size));
+    }
+
+    /**
+     * opens an existing segment and scans its records. The scan stops at the
+     * first incomplete or corrupted record. Appends require a
+     * {@link #reopen()} first.
+     *
+     * @param path the segment file
+     * @param id the segment id
+     * @param visitor receives every valid record
+     * @return the opened segment
+     * @throws IOException on file system errors
+     */
+    static LogSegment recover(Path path, long id, RecordVisitor visitor) throws IOException {
+        LogSegment segment = new LogSegment(id, path, map(path, (int) Files.size(path)));
+        ByteBuffer view = segment.buffer.duplicate();
+        int position = 0;
+
+        while (position + HEADER_SIZE <= view.capacity()) {
+            int length = view.getInt(position);
+            if (length == 0) {
+                break;
+            }
+
+            if (length < 0 || position + HEADER_SIZE + length > view.capacity()
+                    || view.getInt(position + 4) != checksum(view, position + HEADER_SIZE, length)) {
+                LOG.warn("Ignoring records of segment {} from corrupted position {} on", path, position);
+                break;
+            }
+
+            ByteBuffer body = slice(view, position + HEADER_SIZE, length);
+            segment.lastTimestamp = Math.max(segment.lastTimestamp, visitor.visit(position, body));
+            position += HEADER_SIZE + length;
+        }
+
+        segment.writePosition = position;
+        return segment;
+    }
+
+    /**
+     * clears the bytes behind the last valid record of a recovered segment,
+     * so that appends can continue there. This way a partially written tail
+     * can never be mistaken for data of a later append.
+     */
+    void reopen() {
+        ByteBuffer view = buffer.duplicate();
+        int position = writePosition;
+        while (position + 8 <= view.capacity()) {
+            if (view.getLong(position) != 0) {
+                view.putLong(position, 0);
+            }
+            position += 8;
+        }
+        while (position < view.capacity()) {
+            view.put(position++, (byte) 0);
+        }
+    }
+
+    static String fileName(long id) {
+        return String.format("%020d%s", id, FILE_SUFFIX);
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static int checksum(ByteBuffer view, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(view, offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer view, int offset, int length) {
+        ByteBuffer dup = view.duplicate();
+        dup.limit(offset + length);
+        dup.position(offset);
+        return dup.slice();
+    }
+
+    /**
+     * appends a record. Callers must serialize appends.
+     *
+     * @param body the record body
+     * @param timestamp the event time of the record
+     * @return the position of the record, or -1 if the segment is full
+     */
+    int append(byte[] body, long timestamp) {
+        /*
+        * keep room for the terminating zero length
+        */
+        if (writePosition + HEADER_SIZE + body.length + 4 > buffer.capacity()) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(writePosition + HEADER_SIZE);
+        view.put(body);
+        view.putInt(writePosition + 4, (int) crc.getValue());
+        view.putInt(writePosition, body.length);
+
+        int position = writePosition;
+        writePosition += HEADER_SIZE + body.length;
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        return position;
+    }
+
+    /**
+     * @param position a position as returned by {@link #append(byte[], long)}
+     * @return a read-only view on the record body
+     */
+    ByteBuffer read(int position) {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        return slice(view, position + HEADER_SIZE, view.getInt(position));
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * @return the number of bytes used by the records of this segment
+     */
+    int getSize() {
+        return writePosition;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    interface RecordVisitor {
+
+        /**
+         * @param position the position of the record
+         * @param body the record body
+         * @return the event time of the record
+         */
+        long visit(int position, ByteBuffer body);
+
+    }
+
+}
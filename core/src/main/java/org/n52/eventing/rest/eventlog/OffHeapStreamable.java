@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * {@link Streamable} view on a payload held by a {@link PayloadSlabAllocator}.
+ * Reading fails with an {@link IOException} once the payload has been freed,
+ * e.g. because its event was evicted while it was being streamed.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class OffHeapStreamable implements Streamable {
+
+    private final PayloadSlabAllocator.Payload payload;
+    private final String contentType;
+
+    public OffHeapStreamable(PayloadSlabAllocator.Payload payload, String contentType) {
+        this.payload = payload;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public InputStream asStream() {
+        return new PayloadInputStream();
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getContentLength() {
+        return payload.getLength();
+    }
+
+    public PayloadSlabAllocator.Payload getPayload() {
+        return payload;
+    }
+
+    private class PayloadInputStream extends InputStream {
+
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!payload.isValid()) {
+                throw new IOException("The event content has been evicted");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= payload.getLength()) {
+                return -1;
+            }
+
+            int count = Math.min(len, payload.getLength() - position);
+            payload.copy(position, b, off, count);
+
+            /*
+            * the chunk might have been reused during the copy
+            */
+            if (!payload.isValid()) {
+                throw new IOException("The event content has been evicted");
+            }
+
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return payload.getLength() - position;
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.subverse.delivery.Streamable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Optional gzip compression stage for event content, used by the
+ * {@link EventLogStore} implementations. Keeps per-publication counters of the
+ * original and the stored bytes.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class PayloadCompressor implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PayloadCompressor.class.getName());
+
+    private static final String UNKNOWN_PUBLICATION = "unknown";
+
+    @Autowired
+    private Configuration config;
+
+    private boolean enabled;
+    private int minimumSize = 512;
+    private final Map<String, CompressionStatistics> statistics = new ConcurrentHashMap<>();
+
+    public PayloadCompressor() {
+    }
+
+    /**
+     * creates an enabled compressor
+     *
+     * @param minimumSize content smaller than this is stored as is
+     */
+    public PayloadCompressor(int minimumSize) {
+        this.enabled = true;
+        this.minimumSize = minimumSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        this.enabled = this.config.getParameterAsBoolean("eventLog.compression.enabled").orElse(false);
+        this.minimumSize = this.config.getParameterAsInt("eventLog.compression.minimumSize").orElse(512);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param publicationId the publication the content originates from
+     * @param content the content, its position is not changed
+     * @return the gzip compressed content, or null if compression is disabled
+     * or does not pay off
+     */
+    public byte[] compress(String publicationId, ByteBuffer content) {
+        if (!this.enabled) {
+            return null;
+        }
+
+        int length = content.remaining();
+        byte[] result = null;
+        if (length >= this.minimumSize) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bos, 8192) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            }) {
+                WritableByteChannel channel = Channels.newChannel(gzip);
+                channel.write(content.duplicate());
+            }
+            catch (IOException e) {
+                /*
+                * the output may be truncated, the content is stored as is
+                */
+                LOG.warn("Could not compress event content: {}", e.getMessage());
+                LOG.debug(e.getMessage(), e);
+                bos = null;
+            }
+
+            if (bos != null && bos.size() < length) {
+                result = bos.toByteArray();
+            }
+        }
+
+        CompressionStatistics stats = statistics.computeIfAbsent(
+                publicationId != null ? publicationId : UNKNOWN_PUBLICATION,
+                k -> new CompressionStatistics());
+        stats.events.increment();
+        stats.originalBytes.add(length);
+        stats.storedBytes.add(result != null ? result.length : length);
+        return result;
+    }
+
+    /**
+     * compresses the content of an on-heap event
+     *
+     * @param subscription the subscription of the event
+     * @param eh the event
+     * @return a copy of the event with compressed content, or the event
+     * itself if nothing was compressed
+     */
+    public EventHolder compress(Subscription subscription, EventHolder eh) {
+        Optional<Streamable> content = eh.streamableObject();
+        if (!this.enabled || !(eh instanceof EventHolderImpl) || content == null || !content.isPresent()
+                || content.get() instanceof CompressedStreamable) {
+            return eh;
+        }
+
+        ByteBuffer bytes;
+        try {
+            bytes = ByteBufferStreamable.toByteBuffer(content.get());
+        }
+        catch (IOException e) {
+            LOG.warn("Could not read content of event {}: {}", eh.getId(), e.getMessage());
+            LOG.debug(e.getMessage(), e);
+            return eh;
+        }
+
+        byte[] compressed = compress(subscription.getPublicationId(), bytes);
+        if (compressed == null) {
+            return eh;
+        }
+
+        EventHolderImpl impl = (EventHolderImpl) eh;
+        Streamable encoded = new ByteBufferStreamable(ByteBuffer.wrap(compressed), content.get().getContentType());
+        EventHolderImpl result = new EventHolderImpl(impl.getId(), impl.timestampMillis(), impl.subscription(),
+                impl.getLabel(), Optional.of(new CompressedStreamable(encoded, bytes.remaining())));
+        result.setData(impl.getData());
+        return result;
+    }
+
+    /**
+     * @return the counters, keyed by publication id
+     */
+    public Map<String, CompressionStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+    public static class CompressionStatistics {
+
+        private final LongAdder events = new LongAdder();
+        private final LongAdder originalBytes = new LongAdder();
+        private final LongAdder storedBytes = new LongAdder();
+
+        public long getEvents() {
+            return events.sum();
+        }
+
+        public long getOriginalBytes() {
+            return originalBytes.sum();
+        }
+
+        public long getStoredBytes() {
+            return storedBytes.sum();
+        }
+
+        public long getSavedBytes() {
+            return getOriginalBytes() - getStoredBytes();
+        }
+
+        /**
+         * @return stored bytes per original byte
+         */
+        public double getRatio() {
+            long original = getOriginalBytes();
+            return original == 0 ? 1.0 : (double) getStoredBytes() / original;
+        }
+
+    }
+
+}
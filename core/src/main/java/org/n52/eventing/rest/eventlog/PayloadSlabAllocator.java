@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates event payloads in direct (off-heap) memory. Payloads of up to
+ * {@value #MAX_CHUNK_SIZE} bytes are placed in power-of-two sized chunks
+ * carved from {@value #SLAB_SIZE} byte slabs, freed chunks are reused by
+ * later allocations. Larger payloads get a dedicated direct buffer.
+ * <p>
+ * Every chunk carries a generation that is incremented when it is freed, so
+ * views on a payload can detect that it has been freed (and possibly reused)
+ * while they were reading it.
+ * <p>
+ * The reserved memory, i.e. all slabs and dedicated buffers, counts against
+ * the budget as well. A slab whose chunks are all free is released while
+ * the reserved memory exceeds the budget, so that a shifting mix of payload
+ * sizes does not leave slabs behind in every size class.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class PayloadSlabAllocator {
+
+    static final int MIN_CHUNK_SIZE = 512;
+    static final int MAX_CHUNK_SIZE = 64 * 1024;
+    static final int SLAB_SIZE = 1024 * 1024;
+
+    private final long budget;
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicInteger liveCount = new AtomicInteger();
+
+    /**
+     * @param budget the number of bytes that may be in use before
+     * {@link #isOverBudget()} reports true
+     */
+    public PayloadSlabAllocator(long budget) {
+        this.budget = budget;
+        int count = Integer.numberOfTrailingZeros(MAX_CHUNK_SIZE) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE) + 1;
+        this.sizeClasses = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            this.sizeClasses[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+        }
+    }
+
+    /**
+     * copies the given content off-heap. The budget is not enforced here,
+     * callers are expected to free payloads while {@link #isOverBudget()}.
+     *
+     * @param content the content, its position is not changed
+     * @return the handle of the allocated payload
+     */
+    public Payload allocate(ByteBuffer content) {
+        int length = content.remaining();
+        Chunk chunk;
+        if (length > MAX_CHUNK_SIZE) {
+            chunk = new Chunk(ByteBuffer.allocateDirect(length), null);
+            reservedBytes.addAndGet(length);
+        }
+        else {
+            chunk = sizeClasses[sizeClassIndex(length)].take();
+        }
+
+        ByteBuffer target = chunk.buffer.duplicate();
+        target.clear();
+        target.put(content.duplicate());
+
+        usedBytes.addAndGet(chunk.buffer.capacity());
+        liveCount.incrementAndGet();
+        return new Payload(chunk, chunk.generation.get(), length);
+    }
+
+    /**
+     * frees a payload. Freeing an already freed payload has no effect.
+     *
+     * @param payload the payload
+     * @return true if the payload was live
+     */
+    public boolean free(Payload payload) {
+        Chunk chunk = payload.chunk;
+        if (!chunk.generation.compareAndSet(payload.generation, payload.generation + 1)) {
+            return false;
+        }
+
+        usedBytes.addAndGet(-chunk.buffer.capacity());
+        liveCount.decrementAndGet();
+        if (chunk.slab != null) {
+            chunk.slab.sizeClass.give(chunk);
+        }
+        else {
+            reservedBytes.addAndGet(-chunk.buffer.capacity());
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the live payloads exceed the budget, or if the
+     * reserved memory exceeds it by more than one slab per size class
+     */
+    public boolean isOverBudget() {
+        return usedBytes.get() > budget
+                || reservedBytes.get() > budget + (long) sizeClasses.length * SLAB_SIZE;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the bytes occupied by live payloads, including the unused rest
+     * of their chunks
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return the bytes of all slabs and dedicated buffers currently held
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    private static int sizeClassIndex(int length) {
+        int size = Math.max(length, MIN_CHUNK_SIZE);
+        int exponent = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return exponent - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * A handle on an allocated payload.
+     */
+    public static final class Payload {
+
+        private final Chunk chunk;
+        private final int generation;
+        private final int length;
+
+        private Payload(Chunk chunk, int generation, int length) {
+            this.chunk = chunk;
+            this.generation = generation;
+            this.length = length;
+        }
+
+        /**
+         * @return true as long as the payload has not been freed
+         */
+        public boolean isValid() {
+            return chunk.generation.get() == generation;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * copies bytes of the payload. The copy is only guaranteed to be
+         * intact if the payload is still {@link #isValid()} afterwards.
+         *
+         * @param offset the offset within the payload
+         * @param target the target array
+         * @param targetOffset the offset within the target array
+         * @param count the number of bytes to copy
+         */
+        void copy(int offset, byte[] target, int targetOffset, int count) {
+            ByteBuffer view = chunk.buffer.duplicate();
+            view.position(offset);
+            view.get(target, targetOffset, count);
+        }
+
+    }
+
+    private static final class Chunk {
+
+        private final ByteBuffer buffer;
+        private final Slab slab;
+        private final AtomicInteger generation = new AtomicInteger();
+
+        private Chunk(ByteBuffer buffer, Slab slab) {
+            this.buffer = buffer;
+            this.slab = slab;
+        }
+
+    }
+
+    /**
+     * A slab and its free chunks, guarded by the lock of its size class.
+     */
+    private static final class Slab {
+
+        private final SizeClass sizeClass;
+        private final Deque<Chunk> free = new ArrayDeque<>();
+        private int live;
+
+        private Slab(SizeClass sizeClass) {
+            this.sizeClass = sizeClass;
+            ByteBuffer memory = ByteBuffer.allocateDirect(SLAB_SIZE);
+            for (int offset = 0; offset + sizeClass.chunkSize <= SLAB_SIZE; offset += sizeClass.chunkSize) {
+                memory.limit(offset + sizeClass.chunkSize);
+                memory.position(offset);
+                free.push(new Chunk(memory.slice(), this));
+            }
+        }
+
+    }
+
+    private final class SizeClass {
+
+        private final int chunkSize;
+
+        /*
+        * the slabs with at least one free chunk
+        */
+        private final Deque<Slab> available = new ArrayDeque<>();
+
+        private SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        private synchronized Chunk take() {
+            Slab slab = available.peek();
+            if (slab == null) {
+                slab = new Slab(this);
+                reservedBytes.addAndGet(SLAB_SIZE);
+                available.push(slab);
+            }
+
+            Chunk chunk = slab.free.pop();
+            slab.live++;
+            if (slab.free.isEmpty()) {
+                available.remove(slab);
+            }
+            return chunk;
+        }
+
+        private synchronized void give(Chunk chunk) {
+            Slab slab = chunk.slab;
+            if (slab.free.isEmpty()) {
+                available.push(slab);
+            }
+            slab.free.push(chunk);
+            slab.live--;
+
+            /*
+            * the memory of a released slab is reclaimed once the last view
+            * on one of its chunks is gone
+            */
+            if (slab.live == 0 && reservedBytes.get() > budget) {
+                available.remove(slab);
+                reservedBytes.addAndGet(-SLAB_SIZE);
+            }
+        }
+
+    }
+
+}
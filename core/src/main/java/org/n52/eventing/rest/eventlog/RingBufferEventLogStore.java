@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joda.time.DateTime;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.Pagination;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.RequestContext;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.subverse.delivery.Streamable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * {@link EventLogStore} keeping one {@link EventRingBuffer} per subscription
+ * id. Adding an event only contends with other writers of the same
+ * subscription, readers do not take any lock.
+ * <p>
+ * Event content is moved off-heap into a {@link PayloadSlabAllocator}. If the
+ * configured byte budget or the maximum number of events over all
+ * subscriptions is exceeded, the oldest events are evicted regardless of
+ * their subscription. Content can additionally be compressed
+ * by a {@link PayloadCompressor}. Retained events survive restarts if an
+ * {@link EventLogSnapshot} is configured.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class RingBufferEventLogStore implements EventLogStore, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RingBufferEventLogStore.class.getName());
+
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final int DEFAULT_PAYLOAD_BUDGET_MB = 256;
+    private static final int DEFAULT_MAXIMUM_EVENTS = 1000000;
+
+    @Autowired
+    private Configuration config;
+
+    @Autowired(required = false)
+    private PayloadCompressor compressor;
+
+    private PayloadSlabAllocator payloads;
+    private int maximumEvents;
+    private EventLogSnapshot snapshot;
+    private final Map<String, EventRingBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<String, EventHolder> index = new ConcurrentHashMap<>();
+    private final AtomicLong eventCount = new AtomicLong();
+
+    /*
+    * all events in insertion order, used to find the oldest ones when the
+    * global limits are exceeded
+    */
+    private final Queue<Retained> retained = new ConcurrentLinkedQueue<>();
+    private final AtomicLong retainedCount = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    public RingBufferEventLogStore() {
+        this(DEFAULT_PAYLOAD_BUDGET_MB * MEGABYTE, DEFAULT_MAXIMUM_EVENTS);
+    }
+
+    /**
+     * @param payloadBudget the maximum number of bytes of off-heap event
+     * content, 0 to keep the content on the heap
+     * @param maximumEvents the maximum number of events over all
+     * subscriptions, 0 for no limit
+     */
+    public RingBufferEventLogStore(long payloadBudget, int maximumEvents) {
+        this.payloads = payloadBudget > 0 ? new PayloadSlabAllocator(payloadBudget) : null;
+        this.maximumEvents = maximumEvents;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.config != null) {
+            long budget = this.config.getParameterAsInt("eventLog.offHeap.budgetMb")
+                    .orElse(DEFAULT_PAYLOAD_BUDGET_MB) * MEGABYTE;
+            this.payloads = budget > 0 ? new PayloadSlabAllocator(budget) : null;
+            this.maximumEvents = this.config.getParameterAsInt("eventLog.maxEvents").orElse(DEFAULT_MAXIMUM_EVENTS);
+        }
+
+        if (this.snapshot == null) {
+            this.snapshot = EventLogSnapshot.fromConfiguration(this.config);
+        }
+
+        /*
+        * restored before any subscription is registered
+        */
+        if (this.snapshot != null) {
+            this.snapshot.restore((String subscriptionId, int capacity, EventHolder eh) -> {
+                addEvent(((EventHolderImpl) eh).subscription(), eh, capacity);
+            });
+            this.snapshot.start(this::writeSnapshot);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.snapshot != null) {
+            this.snapshot.stop();
+            writeSnapshot();
+        }
+    }
+
+    void setSnapshot(EventLogSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    private void writeSnapshot() {
+        Map<String, List<EventHolder>> logs = new HashMap<>();
+        Map<String, Integer> capacities = new HashMap<>();
+        buffers.forEach((String subscriptionId, EventRingBuffer buffer) -> {
+            logs.put(subscriptionId, buffer.snapshot());
+            capacities.put(subscriptionId, buffer.getCapacity());
+        });
+
+        try {
+            this.snapshot.write(logs, capacities);
+        }
+        catch (IOException e) {
+            LOG.warn("Could not write event log snapshot: {}", e.getMessage());
+            LOG.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of events retained over all subscriptions
+     */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    @Override
+    public void addEvent(Subscription sub, EventHolder eh, int maximumCapacity) {
+        EventHolder stored = moveOffHeap(sub, eh);
+        List<EventHolder> evicted = new ArrayList<>();
+
+        /*
+        * the buffer is replaced by a resized one if the capacity has changed,
+        * e.g. after a restore from a snapshot. Resizing and adding happen
+        * atomically per subscription id.
+        */
+        buffers.compute(sub.getId(), (String id, EventRingBuffer buffer) -> {
+            EventRingBuffer target = buffer;
+            if (target == null) {
+                target = new EventRingBuffer(maximumCapacity);
+            }
+            else if (target.getCapacity() != maximumCapacity) {
+                target = resize(target, maximumCapacity, evicted);
+            }
+
+            /*
+            * the index entry is created before the event enters the buffer,
+            * so it cannot be evicted (and unindexed) before it was indexed
+            */
+            index.put(stored.getId(), stored);
+            eventCount.incrementAndGet();
+            EventHolder overwritten = target.add(stored);
+            if (overwritten != null) {
+                evicted.add(overwritten);
+            }
+            return target;
+        });
+        evicted.forEach(this::discard);
+
+        retained.add(new Retained(sub.getId(), stored));
+        retainedCount.incrementAndGet();
+        enforceLimits();
+    }
+
+    /**
+     * moves the newest events of a buffer into a new one of the given
+     * capacity
+     *
+     * @param evicted receives the events that did not fit
+     */
+    private static EventRingBuffer resize(EventRingBuffer buffer, int capacity, List<EventHolder> evicted) {
+        List<EventHolder> events = buffer.clear();
+        int skip = Math.max(0, events.size() - capacity);
+        evicted.addAll(events.subList(0, skip));
+
+        EventRingBuffer result = new EventRingBuffer(capacity);
+        events.subList(skip, events.size()).forEach(result::add);
+        return result;
+    }
+
+    private EventHolder moveOffHeap(Subscription sub, EventHolder eh) {
+        PayloadSlabAllocator allocator = this.payloads;
+        if (allocator == null) {
+            return compressor != null ? compressor.compress(sub, eh) : eh;
+        }
+        if (!(eh instanceof EventHolderImpl) || eh.streamableObject() == null || !eh.streamableObject().isPresent()) {
+            return eh;
+        }
+
+        EventHolderImpl impl = (EventHolderImpl) eh;
+        Streamable content = eh.streamableObject().get();
+        int originalLength = -1;
+        if (content instanceof CompressedStreamable) {
+            originalLength = ((CompressedStreamable) content).getContentLength();
+            content = ((CompressedStreamable) content).getEncoded();
+        }
+
+        ByteBuffer bytes;
+        try {
+            bytes = ByteBufferStreamable.toByteBuffer(content);
+        }
+        catch (IOException e) {
+            LOG.warn("Could not move content of event {} off-heap: {}", eh.getId(), e.getMessage());
+            LOG.debug(e.getMessage(), e);
+            return eh;
+        }
+
+        if (originalLength < 0 && compressor != null) {
+            byte[] compressed = compressor.compress(sub.getPublicationId(), bytes);
+            if (compressed != null) {
+                originalLength = bytes.remaining();
+                bytes = ByteBuffer.wrap(compressed);
+            }
+        }
+
+        Streamable offHeap = new OffHeapStreamable(allocator.allocate(bytes), content.getContentType());
+        if (originalLength >= 0) {
+            offHeap = new CompressedStreamable(offHeap, originalLength);
+        }
+
+        EventHolderImpl result = new EventHolderImpl(impl.getId(), impl.timestampMillis(), impl.subscription(),
+                impl.getLabel(), Optional.of(offHeap));
+        result.setData(impl.getData());
+        return result;
+    }
+
+    private boolean isOverLimits() {
+        PayloadSlabAllocator allocator = this.payloads;
+        return (this.maximumEvents > 0 && eventCount.get() > this.maximumEvents)
+                || (allocator != null && allocator.isOverBudget());
+    }
+
+    /**
+     * evicts the oldest events over all subscriptions while the global event
+     * count or the content budget is exceeded
+     */
+    private void enforceLimits() {
+        /*
+        * events evicted by their ring buffer leave stale entries behind,
+        * purge them once they dominate the queue
+        */
+        boolean purge = retainedCount.get() > 2 * eventCount.get() + 1024;
+        if (!purge && !isOverLimits()) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            while (isOverLimits()) {
+                Retained oldest = retained.poll();
+                if (oldest == null) {
+                    break;
+                }
+                retainedCount.decrementAndGet();
+                EventRingBuffer buffer = buffers.get(oldest.subscriptionId);
+                if (buffer != null && oldest.isRetained()) {
+                    buffer.evictThrough(oldest.event).forEach(this::discard);
+                }
+            }
+
+            if (retainedCount.get() > 2 * eventCount.get() + 1024) {
+                retained.removeIf(r -> !r.isRetained());
+                retainedCount.set(retained.size());
+            }
+        }
+    }
+
+    private void discard(EventHolder evicted) {
+        index.remove(evicted.getId(), evicted);
+        eventCount.decrementAndGet();
+
+        PayloadSlabAllocator allocator = this.payloads;
+        OffHeapStreamable content = offHeapContent(evicted);
+        if (allocator != null && content != null) {
+            allocator.free(content.getPayload());
+        }
+    }
+
+    private static OffHeapStreamable offHeapContent(EventHolder eh) {
+        Optional<Streamable> content = eh.streamableObject();
+        if (content == null || !content.isPresent()) {
+            return null;
+        }
+
+        Streamable s = content.get();
+        if (s instanceof CompressedStreamable) {
+            s = ((CompressedStreamable) s).getEncoded();
+        }
+        return s instanceof OffHeapStreamable ? (OffHeapStreamable) s : null;
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents() {
+        List<EventHolder> result = new ArrayList<>();
+        buffers.values().forEach(b -> {
+            result.addAll(b.snapshot());
+        });
+
+        return new QueryResult<>(result, result.size());
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents(Pagination pagination) {
+        if (pagination == null) {
+            return getAllEvents();
+        }
+        return EventLogPagination.merge(buffers.values(), pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents(DateTime since, DateTime until, Pagination pagination) {
+        return EventLogPagination.merge(buffers.values(), EventLogPagination.lowerBound(since),
+                EventLogPagination.upperBound(until), pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription) {
+        EventRingBuffer buffer = buffers.get(subscription.getId());
+        if (buffer == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+
+        List<EventHolder> data = buffer.snapshot();
+        return new QueryResult<>(data, data.size());
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, Pagination pagination) {
+        if (pagination == null) {
+            return getEventsForSubscription(subscription);
+        }
+
+        EventRingBuffer buffer = buffers.get(subscription.getId());
+        if (buffer == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+        return EventLogPagination.merge(Collections.singletonList(buffer), pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, DateTime since,
+            DateTime until, Pagination pagination) {
+        EventRingBuffer buffer = buffers.get(subscription.getId());
+        if (buffer == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+        return EventLogPagination.merge(Collections.singletonList(buffer), EventLogPagination.lowerBound(since),
+                EventLogPagination.upperBound(until), pagination);
+    }
+
+    @Override
+    public Optional<EventHolder> getSingleEvent(String eventId, RequestContext context) {
+        return Optional.ofNullable(index.get(eventId));
+    }
+
+    @Override
+    public void removeSubscription(String subscriptionId) {
+        EventRingBuffer buffer = buffers.remove(subscriptionId);
+        if (buffer != null) {
+            /*
+            * the queue entries of the removed events are stale now and get
+            * purged by the next enforcement
+            */
+            buffer.clear().forEach(this::discard);
+        }
+    }
+
+    @Override
+    public Map<String, EventLogUsage> getUsage() {
+        Map<String, EventLogUsage> result = new HashMap<>();
+        buffers.forEach((String subscriptionId, EventRingBuffer buffer) -> {
+            EventLogUsage usage = new EventLogUsage();
+            buffer.snapshot().forEach(usage::add);
+            /*
+            * the slot array and one entry per slot
+            */
+            usage.addHeapBytes(16 + 40L * buffer.getCapacity());
+            result.put(subscriptionId, usage);
+        });
+        return result;
+    }
+
+    private final class Retained {
+
+        /*
+        * the buffer is looked up on eviction, as it is replaced on resize
+        */
+        private final String subscriptionId;
+        private final EventHolder event;
+
+        private Retained(String subscriptionId, EventHolder event) {
+            this.subscriptionId = subscriptionId;
+            this.event = event;
+        }
+
+        private boolean isRetained() {
+            return index.get(event.getId()) == event;
+        }
+
+    }
+
+}
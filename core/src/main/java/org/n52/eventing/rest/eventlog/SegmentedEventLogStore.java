@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.Pagination;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.RequestContext;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Durable {@link EventLogStore} appending events to memory-mapped segment
+ * files (see {@link LogSegment}). Only a compact offset index per
+ * subscription is kept on the heap, payloads are read from the mapped files
+ * on demand.
+ * <p>
+ * On startup, all segments found in the log directory are scanned and the
+ * indexes are rebuilt. Segments are deleted as a whole once all of their
+ * events are older than the retention period, or if the log exceeds its
+ * maximum size. The capacity passed to {@link #addEvent(Subscription, EventHolder, int)}
+ * is not applied, retention is configured for the whole log.
+ * <p>
+ * An added event is in the page cache of the operating system right away and
+ * survives a crash of the application. The active segment is forced to the
+ * storage device every {@code flushMillis}, so a crash of the operating system
+ * loses at most the events of that interval. With a flush interval of 0,
+ * every event is forced before {@link #addEvent(Subscription, EventHolder, int)}
+ * returns; a negative interval only forces segments when they are
+ * full and on shutdown.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class SegmentedEventLogStore implements EventLogStore, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentedEventLogStore.class.getName());
+
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final long HOUR = 60L * 60L * 1000L;
+
+    @Autowired
+    private Configuration config;
+
+    @Autowired(required = false)
+    private PayloadCompressor compressor;
+
+    private Path directory;
+    private int segmentSize = (int) (16 * MEGABYTE);
+    private long retentionMillis = 72 * HOUR;
+    private long maximumSize = 1024 * MEGABYTE;
+    private int maximumEventsPerSubscription;
+    private long flushMillis = 1000;
+
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, SubscriptionLog> logs = new ConcurrentHashMap<>();
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile LogSegment active;
+    private ScheduledExecutorService maintenanceExecutor;
+
+    public SegmentedEventLogStore() {
+    }
+
+    /**
+     * @param directory the log directory
+     * @param segmentSize the size of a segment in bytes
+     * @param retentionMillis the time after which events are discarded
+     * @param maximumSize the maximum size of all segments in bytes
+     * @param maximumEventsPerSubscription the maximum number of events per
+     * subscription, 0 for no limit
+     */
+    public SegmentedEventLogStore(Path directory, int segmentSize, long retentionMillis,
+            long maximumSize, int maximumEventsPerSubscription) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retentionMillis = retentionMillis;
+        this.maximumSize = maximumSize;
+        this.maximumEventsPerSubscription = maximumEventsPerSubscription;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.config != null) {
+            this.config.getParameter("eventLog.segments.directory")
+                    .ifPresent(d -> this.directory = Paths.get(d));
+            this.segmentSize = (int) (this.config.getParameterAsInt("eventLog.segments.segmentSizeMb")
+                    .orElse(16) * MEGABYTE);
+            this.retentionMillis = this.config.getParameterAsInt("eventLog.segments.retentionHours")
+                    .orElse(72) * HOUR;
+            this.maximumSize = this.config.getParameterAsInt("eventLog.segments.maxSizeMb")
+                    .orElse(1024) * MEGABYTE;
+            this.maximumEventsPerSubscription = this.config.getParameterAsInt("eventLog.segments.maxEventsPerSubscription")
+                    .orElse(0);
+            this.flushMillis = this.config.getParameterAsInt("eventLog.segments.flushMillis")
+                    .map(Integer::longValue).orElse(this.flushMillis);
+        }
+
+        if (this.directory == null) {
+            this.directory = resolveDefaultDirectory();
+        }
+        if (isTemporary(this.directory)) {
+            LOG.warn("The event log is kept in the temporary directory {}, events may be lost on reboot. "
+                    + "Configure 'eventLog.segments.directory' to keep them.", this.directory);
+        }
+
+        Files.createDirectories(this.directory);
+
+        synchronized (writeLock) {
+            recover();
+            if (active == null) {
+                roll(0);
+            }
+            applyRetention();
+        }
+
+        LOG.info("Event log at {} recovered {} events in {} segments", this.directory, index.size(), segments.size());
+
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "event-log-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        this.maintenanceExecutor.scheduleWithFixedDelay(() -> {
+            synchronized (writeLock) {
+                applyRetention();
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+
+        /*
+        * forcing does not need the write lock, appends may go on meanwhile.
+        * full segments are forced when rolling over
+        */
+        if (this.flushMillis > 0) {
+            this.maintenanceExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    active.flush();
+                }
+                catch (RuntimeException e) {
+                    LOG.warn("Could not flush the event log: {}", e.getMessage());
+                    LOG.debug(e.getMessage(), e);
+                }
+            }, this.flushMillis, this.flushMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Path resolveDefaultDirectory() {
+        Path home = Paths.get(System.getProperty("user.home"));
+        if (Files.isDirectory(home) && Files.isWritable(home)) {
+            return home.resolve(".eventing").resolve("events");
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "eventing-event-log");
+    }
+
+    private static boolean isTemporary(Path dir) {
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        return dir.toAbsolutePath().normalize().startsWith(tmp);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.maintenanceExecutor != null) {
+            this.maintenanceExecutor.shutdownNow();
+        }
+
+        synchronized (writeLock) {
+            segments.values().forEach(LogSegment::flush);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + LogSegment.FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id;
+            try {
+                id = Long.parseLong(name.substring(0, name.length() - LogSegment.FILE_SUFFIX.length()));
+            }
+            catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file in event log directory: {}", file);
+                continue;
+            }
+
+            LogSegment segment = LogSegment.recover(file, id, (int position, ByteBuffer body) -> {
+                long timestamp = body.getLong();
+                String subscriptionId = EventRecords.readString(body);
+                String eventId = EventRecords.readString(body);
+                indexEvent(subscriptionId, eventId, SubscriptionLog.location(id, position), timestamp);
+                return timestamp;
+            });
+
+            if (segment.getLastTimestamp() == 0) {
+                /*
+                * no valid record at all, e.g. the active segment of the last run
+                */
+                segment.delete();
+            }
+            else {
+                segments.put(id, segment);
+            }
+        }
+
+        /*
+        * appends continue in the last segment, so that restarts do not leave
+        * nearly empty segments behind
+        */
+        if (!segments.isEmpty()) {
+            active = segments.lastEntry().getValue();
+            active.reopen();
+        }
+    }
+
+    @Override
+    public void addEvent(Subscription sub, EventHolder eh, int maximumCapacity) {
+        long timestamp = EventRecords.resolveTimestamp(eh);
+
+        byte[] body;
+        try {
+            body = EventRecords.encode(sub.getId(), sub.getPublicationId(), eh, timestamp, compressor);
+        }
+        catch (IOException e) {
+            LOG.warn("Could not read event content of {}: {}", eh.getId(), e.getMessage());
+            LOG.debug(e.getMessage(), e);
+            return;
+        }
+
+        synchronized (writeLock) {
+            try {
+                int position = active.append(body, timestamp);
+                if (position < 0) {
+                    roll(body.length);
+                    position = active.append(body, timestamp);
+                }
+                if (this.flushMillis == 0) {
+                    active.flush();
+                }
+                indexEvent(sub.getId(), eh.getId(), SubscriptionLog.location(active.getId(), position), timestamp);
+            }
+            catch (IOException e) {
+                LOG.warn("Could not append event {} to the event log: {}", eh.getId(), e.getMessage());
+                LOG.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void roll(int minimumRecordSize) throws IOException {
+        long id;
+        if (active != null) {
+            active.flush();
+            id = active.getId() + 1;
+        }
+        else {
+            id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        }
+
+        active = LogSegment.create(this.directory, id,
+                Math.max(this.segmentSize, minimumRecordSize + LogSegment.HEADER_SIZE + 4));
+        segments.put(id, active);
+        applyRetention();
+    }
+
+    private void indexEvent(String subscriptionId, String eventId, long location, long timestamp) {
+        SubscriptionLog log = logs.computeIfAbsent(subscriptionId, k -> new SubscriptionLog());
+        log.append(eventId, location, timestamp);
+        index.put(eventId, location);
+
+        if (this.maximumEventsPerSubscription > 0) {
+            while (log.size() > this.maximumEventsPerSubscription) {
+                long dropped = log.oldestLocation();
+                index.remove(log.dropOldest(), dropped);
+            }
+        }
+    }
+
+    /**
+     * deletes all segments (except the active one) that are out of
+     * retention and drops their index entries. Callers must hold the write lock.
+     */
+    private void applyRetention() {
+        long cutoff = System.currentTimeMillis() - this.retentionMillis;
+        long total = segments.values().stream().mapToLong(LogSegment::getSize).sum();
+
+        boolean deleted = false;
+        Iterator<LogSegment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            LogSegment segment = it.next();
+            if (segment == active || (segment.getLastTimestamp() >= cutoff && total <= this.maximumSize)) {
+                break;
+            }
+
+            it.remove();
+            total -= segment.getSize();
+            deleted = true;
+            try {
+                segment.delete();
+            }
+            catch (IOException e) {
+                LOG.warn("Could not delete event log segment {}: {}", segment.getId(), e.getMessage());
+            }
+        }
+
+        if (deleted) {
+            long oldest = segments.firstKey();
+            logs.forEach((String subscriptionId, SubscriptionLog log) -> {
+                long location;
+                while ((location = log.oldestLocation()) >= 0 && SubscriptionLog.segmentOf(location) < oldest) {
+                    index.remove(log.dropOldest(), location);
+                }
+                if (log.size() == 0) {
+                    logs.remove(subscriptionId, log);
+                }
+            });
+        }
+    }
+
+    private EventHolder read(long location) {
+        LogSegment segment = segments.get(SubscriptionLog.segmentOf(location));
+        if (segment == null) {
+            return null;
+        }
+
+        return EventRecords.decode(segment.read(SubscriptionLog.positionOf(location)), false);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents() {
+        List<EventHolder> result = new ArrayList<>();
+        logs.values().forEach(log -> collect(log, result));
+        return new QueryResult<>(result, result.size());
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents(Pagination pagination) {
+        if (pagination == null) {
+            return getAllEvents();
+        }
+
+        long total = 0;
+        List<EventCursor> cursors = new ArrayList<>(logs.size());
+        for (SubscriptionLog log : logs.values()) {
+            total += log.size();
+            cursors.add(log.newestFirst(this::read));
+        }
+        return EventLogPagination.merge(cursors, total, pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getAllEvents(DateTime since, DateTime until, Pagination pagination) {
+        long from = EventLogPagination.lowerBound(since);
+        long to = EventLogPagination.upperBound(until);
+        long total = 0;
+        List<EventCursor> cursors = new ArrayList<>(logs.size());
+        for (SubscriptionLog log : logs.values()) {
+            total += log.count(from, to);
+            cursors.add(log.newestFirst(this::read, from, to));
+        }
+        return EventLogPagination.merge(cursors, total, pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription) {
+        SubscriptionLog log = logs.get(subscription.getId());
+        if (log == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+
+        List<EventHolder> result = new ArrayList<>(log.size());
+        collect(log, result);
+        return new QueryResult<>(result, result.size());
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, Pagination pagination) {
+        if (pagination == null) {
+            return getEventsForSubscription(subscription);
+        }
+
+        SubscriptionLog log = logs.get(subscription.getId());
+        if (log == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+        return EventLogPagination.merge(Collections.singletonList(log.newestFirst(this::read)),
+                log.size(), pagination);
+    }
+
+    @Override
+    public QueryResult<EventHolder> getEventsForSubscription(Subscription subscription, DateTime since,
+            DateTime until, Pagination pagination) {
+        SubscriptionLog log = logs.get(subscription.getId());
+        if (log == null) {
+            return new QueryResult<>(Collections.emptyList(), 0);
+        }
+
+        long from = EventLogPagination.lowerBound(since);
+        long to = EventLogPagination.upperBound(until);
+        return EventLogPagination.merge(Collections.singletonList(log.newestFirst(this::read, from, to)),
+                log.count(from, to), pagination);
+    }
+
+    @Override
+    public Optional<EventHolder> getSingleEvent(String eventId, RequestContext context) {
+        Long location = index.get(eventId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(read(location));
+    }
+
+    @Override
+    public void removeSubscription(String subscriptionId) {
+        /*
+        * the records stay in their segments until these are out of retention
+        */
+        SubscriptionLog log = logs.remove(subscriptionId);
+        if (log != null) {
+            log.clear().forEach(index::remove);
+        }
+    }
+
+    @Override
+    public Map<String, EventLogUsage> getUsage() {
+        Map<String, EventLogUsage> result = new HashMap<>();
+        logs.forEach((String subscriptionId, SubscriptionLog log) -> {
+            result.put(subscriptionId, log.usage());
+        });
+        return result;
+    }
+
+    private void collect(SubscriptionLog log, List<EventHolder> target) {
+        EventCursor cursor = log.newestFirst(this::read);
+        while (cursor.advance()) {
+            EventHolder event = cursor.event();
+            if (event != null) {
+                target.add(event);
+            }
+        }
+    }
+
+}
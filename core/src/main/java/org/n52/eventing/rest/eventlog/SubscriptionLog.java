@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.n52.eventing.rest.model.EventHolder;
+
+/**
+ * The offset index of one subscription within a {@link SegmentedEventLogStore}.
+ * Entries are kept in circular primitive arrays addressed by a logical
+ * sequence number, so that cursors stay valid while old entries are dropped.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class SubscriptionLog {
+
+    private long[] locations = new long[16];
+    private long[] timestamps = new long[16];
+    private String[] ids = new String[16];
+
+    /*
+    * logical sequence of the oldest retained entry and the next entry
+    */
+    private long first;
+    private long next;
+
+    static long location(long segmentId, int position) {
+        return (segmentId << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    static long segmentOf(long location) {
+        return location >>> 32;
+    }
+
+    static int positionOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * @param id the event id
+     * @param location the record location
+     * @param timestamp the event time, clamped so that it never decreases
+     */
+    synchronized void append(String id, long location, long timestamp) {
+        int size = (int) (next - first);
+        if (size == locations.length) {
+            grow();
+        }
+
+        int slot = slot(next);
+        if (size > 0) {
+            timestamp = Math.max(timestamp, timestamps[slot(next - 1)]);
+        }
+        locations[slot] = location;
+        timestamps[slot] = timestamp;
+        ids[slot] = id;
+        next++;
+    }
+
+    /**
+     * drops the oldest entry if there is one
+     *
+     * @return the id of the dropped entry, or null
+     */
+    synchronized String dropOldest() {
+        if (first == next) {
+            return null;
+        }
+
+        int slot = slot(first++);
+        String id = ids[slot];
+        ids[slot] = null;
+        return id;
+    }
+
+    /**
+     * @return the location of the oldest entry, or -1 if empty
+     */
+    synchronized long oldestLocation() {
+        return first == next ? -1 : locations[slot(first)];
+    }
+
+    synchronized int size() {
+        return (int) (next - first);
+    }
+
+    /**
+     * drops all entries
+     *
+     * @return the ids of the dropped entries, oldest first
+     */
+    synchronized List<String> clear() {
+        List<String> result = new ArrayList<>(size());
+        while (first < next) {
+            result.add(dropOldest());
+        }
+        return result;
+    }
+
+    /**
+     * @return the heap retained by the entries. The records themselves live
+     * in the mapped segments.
+     */
+    synchronized EventLogUsage usage() {
+        long heap = 3 * 16 + (8L + 8L + 4L) * locations.length;
+        for (long s = first; s < next; s++) {
+            String id = ids[slot(s)];
+            heap += id == null ? 0 : 40 + 2L * id.length();
+        }
+        return new EventLogUsage(size(), heap, 0);
+    }
+
+    /**
+     * @param reader decodes the event stored at a location
+     * @return a cursor starting at the newest entry at the time of the call
+     */
+    synchronized EventCursor newestFirst(RecordReader reader) {
+        return new Cursor(next - 1, first, reader);
+    }
+
+    /**
+     * @param reader decodes the event stored at a location
+     * @param since the lower bound in epoch millis, inclusive
+     * @param until the upper bound in epoch millis, exclusive
+     * @return a cursor over the entries within the range, newest first
+     */
+    synchronized EventCursor newestFirst(RecordReader reader, long since, long until) {
+        return new Cursor(search(until) - 1, search(since), reader);
+    }
+
+    /**
+     * @param since the lower bound in epoch millis, inclusive
+     * @param until the upper bound in epoch millis, exclusive
+     * @return the number of entries within the range
+     */
+    synchronized int count(long since, long until) {
+        return (int) Math.max(0, search(until) - search(since));
+    }
+
+    /**
+     * @return the lowest sequence with a timestamp of at least the given one,
+     * or the next sequence
+     */
+    private long search(long timestamp) {
+        long low = first;
+        long high = next;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[slot(mid)] < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % locations.length);
+    }
+
+    private void grow() {
+        int capacity = locations.length * 2;
+        long[] newLocations = new long[capacity];
+        long[] newTimestamps = new long[capacity];
+        String[] newIds = new String[capacity];
+        for (long s = first; s < next; s++) {
+            int from = slot(s);
+            int to = (int) (s % capacity);
+            newLocations[to] = locations[from];
+            newTimestamps[to] = timestamps[from];
+            newIds[to] = ids[from];
+        }
+        locations = newLocations;
+        timestamps = newTimestamps;
+        ids = newIds;
+    }
+
+    interface RecordReader {
+
+        /**
+         * @param location a record location
+         * @return the decoded event, or null if the record is gone
+         */
+        EventHolder read(long location);
+
+    }
+
+    private class Cursor implements EventCursor {
+
+        private final RecordReader reader;
+        private final long lowerBound;
+        private long sequence;
+        private long location;
+        private long timestamp;
+
+        Cursor(long start, long lowerBound, RecordReader reader) {
+            this.sequence = start;
+            this.lowerBound = lowerBound;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean advance() {
+            synchronized (SubscriptionLog.this) {
+                if (sequence < first || sequence < lowerBound) {
+                    return false;
+                }
+                int slot = slot(sequence--);
+                location = locations[slot];
+                timestamp = timestamps[slot];
+                return true;
+            }
+        }
+
+        @Override
+        public EventHolder event() {
+            return reader.read(location);
+        }
+
+        @Override
+        public long timestamp() {
+            return timestamp;
+        }
+
+    }
+
+}
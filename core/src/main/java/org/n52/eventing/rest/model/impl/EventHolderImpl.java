@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -38,8 +38,14 @@ import org.n52.subverse.delivery.Streamable;
  */
 public class EventHolderImpl implements EventHolder, Comparable<EventHolderImpl> {
 
+    /**
+     * marks an event without a known time
+     */
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
     private final String id;
-    private final DateTime timestamp;
+    private final long time;
+    private volatile DateTime timestamp;
     private final SubscriptionImpl subscription;
     private final String label;
     private transient final Optional<Streamable> streamable;
@@ -48,8 +54,20 @@ public class EventHolderImpl implements EventHolder, Comparable<EventHolderImpl>
     private String content;
 
     public EventHolderImpl(String id, DateTime time, SubscriptionImpl subscription, String label, Optional<Streamable> streamable) {
-        this.id = id;
+        this(id, time != null ? time.getMillis() : UNKNOWN_TIME, subscription, label, streamable);
         this.timestamp = time;
+    }
+
+    /**
+     * @param id the event id
+     * @param time the event time in epoch millis, or {@link #UNKNOWN_TIME}
+     * @param subscription the matching subscription
+     * @param label the label
+     * @param streamable the event content
+     */
+    public EventHolderImpl(String id, long time, SubscriptionImpl subscription, String label, Optional<Streamable> streamable) {
+        this.id = id;
+        this.time = time;
         this.subscription = subscription;
         this.label = label;
         this.streamable = streamable;
@@ -61,9 +79,22 @@ public class EventHolderImpl implements EventHolder, Comparable<EventHolderImpl>
     }
 
     public DateTime getTimestamp() {
+        /*
+        * only created when the event is rendered
+        */
+        if (timestamp == null && time != UNKNOWN_TIME) {
+            timestamp = new DateTime(time);
+        }
         return timestamp;
     }
 
+    /**
+     * @return the event time in epoch millis, or {@link #UNKNOWN_TIME}
+     */
+    public long timestampMillis() {
+        return time;
+    }
+
     public SubscriptionImpl subscription() {
         return subscription;
     }
@@ -103,14 +134,7 @@ public class EventHolderImpl implements EventHolder, Comparable<EventHolderImpl>
 
     @Override
     public int compareTo(EventHolderImpl o) {
-        if (this.timestamp == null) {
-            return -1;
-        }
-        if (o.timestamp == null) {
-            return 1;
-        }
-
-        return this.timestamp.compareTo(o.timestamp);
+        return Long.compare(this.time, o.time);
     }
 
 }
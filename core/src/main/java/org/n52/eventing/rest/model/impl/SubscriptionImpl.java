@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -58,6 +58,7 @@ public class SubscriptionImpl implements Subscription {
     private Boolean expired;
     private Object details;
     private String href;
+    private Integer eventLogCapacity;
 
     public SubscriptionImpl() {
     }
@@ -89,6 +90,14 @@ public class SubscriptionImpl implements Subscription {
         this.label = label;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
     @Override
     public User getUser() {
         return user;
@@ -190,4 +199,14 @@ public class SubscriptionImpl implements Subscription {
         this.href = href;
     }
 
+    @Override
+    public Integer getEventLogCapacity() {
+        return eventLogCapacity;
+    }
+
+    @Override
+    public void setEventLogCapacity(Integer eventLogCapacity) {
+        this.eventLogCapacity = eventLogCapacity;
+    }
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -37,6 +37,8 @@ import java.util.Map;
 import org.n52.eventing.rest.Configuration;
 import org.n52.eventing.rest.Pagination;
 import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.VersionCounter;
+import org.n52.eventing.rest.Versioned;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
@@ -47,11 +49,12 @@ import org.springframework.beans.factory.annotation.Autowired;
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class InjectablePublicationsDao implements PublicationsService, InitializingBean, DisposableBean {
+public class InjectablePublicationsDao implements PublicationsService, Versioned, InitializingBean, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(InjectablePublicationsDao.class);
 
     private final Map<String, Publication> publications = new HashMap<>();
+    private final VersionCounter version = new VersionCounter();
 
     @Autowired
     private Configuration config;
@@ -95,6 +98,17 @@ public class InjectablePublicationsDao implements PublicationsService, Initializ
                     Publication pub = new PublicationImpl(pp.getIdentifier(), pp.getDescription(), null);
                     this.publications.put(pp.getIdentifier(), pub);
                 });
+        this.version.increment();
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version.getVersion();
+    }
+
+    @Override
+    public long getLastModified() {
+        return this.version.getLastModified();
     }
 
     @Override
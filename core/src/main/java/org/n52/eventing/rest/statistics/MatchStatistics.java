@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.statistics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.n52.eventing.rest.model.Subscription;
+
+/**
+ * Keeps {@link RateCounter}s of the matches per subscription and of the
+ * ingested messages and matches per publication.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class MatchStatistics {
+
+    private final Map<String, RateCounter> subscriptionMatches = new ConcurrentHashMap<>();
+    private final Map<String, RateCounter> publicationMatches = new ConcurrentHashMap<>();
+    private final Map<String, RateCounter> publicationMessages = new ConcurrentHashMap<>();
+
+    /**
+     * records a match of a subscription
+     *
+     * @param subscription the matching subscription
+     */
+    public void recordMatch(Subscription subscription) {
+        long now = System.currentTimeMillis();
+        counter(this.subscriptionMatches, subscription.getId()).increment(now);
+        if (subscription.getPublicationId() != null) {
+            counter(this.publicationMatches, subscription.getPublicationId()).increment(now);
+        }
+    }
+
+    /**
+     * records a message ingested for a publication
+     *
+     * @param publicationId the publication
+     */
+    public void recordMessage(String publicationId) {
+        counter(this.publicationMessages, publicationId).increment();
+    }
+
+    public void removeSubscription(String subscriptionId) {
+        this.subscriptionMatches.remove(subscriptionId);
+    }
+
+    public Map<String, RateStatistics> getSubscriptionStatistics() {
+        long now = System.currentTimeMillis();
+        Map<String, RateStatistics> result = new TreeMap<>();
+        this.subscriptionMatches.forEach((String id, RateCounter c) -> {
+            result.put(id, new RateStatistics(c, null, now));
+        });
+        return result;
+    }
+
+    public Optional<RateStatistics> getSubscriptionStatistics(String subscriptionId) {
+        RateCounter counter = this.subscriptionMatches.get(subscriptionId);
+        if (counter == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new RateStatistics(counter, null, System.currentTimeMillis()));
+    }
+
+    public Map<String, RateStatistics> getPublicationStatistics() {
+        long now = System.currentTimeMillis();
+        Map<String, RateStatistics> result = new TreeMap<>();
+        this.publicationMessages.keySet().forEach(id -> {
+            result.put(id, createPublicationStatistics(id, now));
+        });
+        this.publicationMatches.keySet().forEach(id -> {
+            result.computeIfAbsent(id, k -> createPublicationStatistics(k, now));
+        });
+        return result;
+    }
+
+    public Optional<RateStatistics> getPublicationStatistics(String publicationId) {
+        if (!this.publicationMessages.containsKey(publicationId)
+                && !this.publicationMatches.containsKey(publicationId)) {
+            return Optional.empty();
+        }
+        return Optional.of(createPublicationStatistics(publicationId, System.currentTimeMillis()));
+    }
+
+    private RateStatistics createPublicationStatistics(String publicationId, long now) {
+        return new RateStatistics(this.publicationMatches.get(publicationId),
+                this.publicationMessages.get(publicationId), now);
+    }
+
+    private static RateCounter counter(Map<String, RateCounter> counters, String key) {
+        /*
+        * a plain lookup first, computeIfAbsent locks its bin
+        */
+        RateCounter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new RateCounter());
+        }
+        return counter;
+    }
+
+}
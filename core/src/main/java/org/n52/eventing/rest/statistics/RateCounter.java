@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.statistics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts occurrences in fixed time buckets, with minute resolution for the
+ * last hour and hour resolution for the last two days. Each bucket is a
+ * single long in a primitive ring, holding the index of its period in the
+ * upper and the count in the lower 32 bits. A bucket of an elapsed period is
+ * recycled by the first increment of the new period, so that increments are
+ * lock-free and do not allocate.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class RateCounter {
+
+    public static final long MINUTE = 60L * 1000L;
+    public static final long HOUR = 60L * MINUTE;
+    public static final int MINUTES = 60;
+    public static final int HOURS = 48;
+
+    private final AtomicLongArray minutes = new AtomicLongArray(MINUTES);
+    private final AtomicLongArray hours = new AtomicLongArray(HOURS);
+    private final LongAdder total = new LongAdder();
+
+    public void increment() {
+        increment(System.currentTimeMillis());
+    }
+
+    /**
+     * @param now the time of the occurrence in epoch millis
+     */
+    public void increment(long now) {
+        increment(this.minutes, now / MINUTE);
+        increment(this.hours, now / HOUR);
+        this.total.increment();
+    }
+
+    public long getTotal() {
+        return this.total.sum();
+    }
+
+    /**
+     * @param now the current time in epoch millis
+     * @return the counts of the last {@link #MINUTES} minutes, oldest first,
+     * ending with the current minute
+     */
+    public long[] perMinute(long now) {
+        return series(this.minutes, now / MINUTE);
+    }
+
+    /**
+     * @param now the current time in epoch millis
+     * @return the counts of the last {@link #HOURS} hours, oldest first,
+     * ending with the current hour
+     */
+    public long[] perHour(long now) {
+        return series(this.hours, now / HOUR);
+    }
+
+    private static void increment(AtomicLongArray ring, long period) {
+        int slot = (int) (period % ring.length());
+        long tag = period << 32;
+        while (true) {
+            long current = ring.get(slot);
+            if ((current & 0xFFFFFFFF00000000L) == tag) {
+                if (ring.compareAndSet(slot, current, current + 1)) {
+                    return;
+                }
+            }
+            else if ((current >>> 32) > period) {
+                /*
+                * a late increment for a period that has been recycled already
+                */
+                return;
+            }
+            else if (ring.compareAndSet(slot, current, tag | 1)) {
+                return;
+            }
+        }
+    }
+
+    private static long[] series(AtomicLongArray ring, long currentPeriod) {
+        int length = ring.length();
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            long period = currentPeriod - length + 1 + i;
+            long value = ring.get((int) (period % length));
+            result[i] = (value >>> 32) == period ? value & 0xFFFFFFFFL : 0;
+        }
+        return result;
+    }
+
+}
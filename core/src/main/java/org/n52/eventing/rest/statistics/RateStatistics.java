@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.statistics;
+
+import org.joda.time.DateTime;
+
+/**
+ * The match and message rates of a subscription or publication at a point in
+ * time. Series are ordered oldest first and end with the current minute or
+ * hour.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class RateStatistics {
+
+    private final DateTime time;
+    private final RateCounter matches;
+    private final RateCounter messages;
+    private final long now;
+
+    /**
+     * @param matches the match counter, or null
+     * @param messages the counter of ingested messages, or null
+     * @param now the time of the statistics in epoch millis
+     */
+    public RateStatistics(RateCounter matches, RateCounter messages, long now) {
+        this.matches = matches;
+        this.messages = messages;
+        this.now = now;
+        this.time = new DateTime(now);
+    }
+
+    public DateTime getTime() {
+        return time;
+    }
+
+    public long getMatches() {
+        return matches != null ? matches.getTotal() : 0;
+    }
+
+    public long[] getMatchesPerMinute() {
+        return matches != null ? matches.perMinute(now) : new long[RateCounter.MINUTES];
+    }
+
+    public long[] getMatchesPerHour() {
+        return matches != null ? matches.perHour(now) : new long[RateCounter.HOURS];
+    }
+
+    public Long getMessages() {
+        return messages != null ? messages.getTotal() : null;
+    }
+
+    public long[] getMessagesPerMinute() {
+        return messages != null ? messages.perMinute(now) : null;
+    }
+
+    public long[] getMessagesPerHour() {
+        return messages != null ? messages.perHour(now) : null;
+    }
+
+}
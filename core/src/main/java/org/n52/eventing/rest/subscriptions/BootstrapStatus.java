@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+/**
+ * The progress of registering the persisted subscriptions at startup. The
+ * service is ready once all of them have been processed.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class BootstrapStatus {
+
+    private final boolean ready;
+    private final int total;
+    private final int registered;
+    private final int failed;
+    private final int expired;
+    private final long elapsedMillis;
+
+    public BootstrapStatus(boolean ready, int total, int registered, int failed, int expired,
+            long elapsedMillis) {
+        this.ready = ready;
+        this.total = total;
+        this.registered = registered;
+        this.failed = failed;
+        this.expired = expired;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of persisted subscriptions
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getRegistered() {
+        return registered;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of subscriptions removed as their end of life passed
+     * while the service was down
+     */
+    public int getExpired() {
+        return expired;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -27,8 +27,12 @@
  */
 package org.n52.eventing.rest.subscriptions;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import org.n52.eventing.rest.model.Subscription;
 import org.n52.eventing.rest.model.TemplateDefinition;
+import org.n52.eventing.rest.statistics.CacheStatistics;
 
 /**
  *
@@ -45,6 +49,28 @@ public interface FilterLogic {
      */
     public String internalSubscribe(Subscription s, TemplateDefinition template) throws InvalidSubscriptionException;
 
+    /**
+     * registers several subscriptions at once. Implementations may share work
+     * between the registrations, the default registers them one by one.
+     *
+     * @param subscriptions the subscriptions in order, mapped to their
+     * template or null
+     * @return the failed registrations. All others have been registered and
+     * carry their unique id.
+     */
+    public default Map<Subscription, InvalidSubscriptionException> internalSubscribe(
+            Map<Subscription, TemplateDefinition> subscriptions) {
+        Map<Subscription, InvalidSubscriptionException> failures = new LinkedHashMap<>();
+        subscriptions.forEach((Subscription s, TemplateDefinition template) -> {
+            try {
+                internalSubscribe(s, template);
+            } catch (InvalidSubscriptionException ex) {
+                failures.put(s, ex);
+            }
+        });
+        return failures;
+    }
+
     /**
      * an implementation shall remove the subscription with the given ID
      *
@@ -52,4 +78,34 @@ public interface FilterLogic {
      */
     public void remove(String id);
 
+    /**
+     * an implementation shall stop evaluating the subscription with the given
+     * ID, but keep what is needed to resume it. The default does not support
+     * pausing.
+     *
+     * @param id the subscription id
+     * @return true if the subscription is paused
+     */
+    public default boolean pause(String id) {
+        return false;
+    }
+
+    /**
+     * an implementation shall evaluate a paused subscription again
+     *
+     * @param id the subscription id
+     * @return true if the subscription is evaluated
+     */
+    public default boolean resume(String id) {
+        return false;
+    }
+
+    /**
+     * @return the usage of the cache of parsed filters, if the
+     * implementation has one
+     */
+    public default Optional<CacheStatistics> getFilterCacheStatistics() {
+        return Optional.empty();
+    }
+
 }
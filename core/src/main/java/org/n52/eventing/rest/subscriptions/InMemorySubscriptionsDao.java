@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -30,13 +30,28 @@ package org.n52.eventing.rest.subscriptions;
 import org.n52.eventing.rest.model.impl.SubscriptionImpl;
 import org.n52.eventing.rest.model.Subscription;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.joda.time.DateTime;
 import org.n52.eventing.rest.Pagination;
 import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.RequestContext;
+import org.n52.eventing.rest.VersionCounter;
+import org.n52.eventing.rest.Versioned;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -47,14 +62,45 @@ import org.n52.eventing.rest.deliverymethods.DeliveryMethodsService;
 import org.n52.eventing.rest.factory.TemplatesDaoFactory;
 
 /**
+ * In-memory {@link SubscriptionsService}. Reads do not lock: subscriptions are
+ * kept in concurrent maps ordered by insertion, with secondary indexes by
+ * publication, template, user, enabled state and expiry. Writes are
+ * serialized.
+ * <p>
+ * {@link #getSubscriptions(Pagination)} applies the filters given as
+ * parameters of the {@link RequestContext} of the current thread:
+ * <code>publications</code>, <code>templates</code>, <code>users</code>
+ * (comma-separated ids), <code>enabled</code> and <code>expired</code>
+ * (<code>true</code> or <code>false</code>). Only the requested page is
+ * copied.
+ * <p>
+ * Every change increments the version of the collection. Each subscription
+ * keeps the collection version of its last change as its own version.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class InMemorySubscriptionsDao implements SubscriptionsService, InitializingBean {
+public class InMemorySubscriptionsDao implements SubscriptionsService, Versioned, InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemorySubscriptionsDao.class);
 
-    private final Map<String, SubscriptionImpl> subscriptions = new HashMap<>();
+    static final String PUBLICATIONS_FILTER = "publications";
+    static final String TEMPLATES_FILTER = "templates";
+    static final String USERS_FILTER = "users";
+    static final String ENABLED_FILTER = "enabled";
+    static final String EXPIRED_FILTER = "expired";
+
+    private final Map<String, Entry> subscriptions = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, SubscriptionImpl> ordered = new ConcurrentSkipListMap<>();
+    private final Index byPublication = new Index(SubscriptionImpl::getPublicationId);
+    private final Index byTemplate = new Index(s -> s.getNotificationInstance() != null
+            ? s.getNotificationInstance().getId() : null);
+    private final Index byUser = new Index(s -> s.getUser() != null ? s.getUser().getId() : null);
+    private final Index byEnabled = new Index(s -> Boolean.toString(isEnabled(s)));
+    private final Map<String, Index> indexes = new LinkedHashMap<>();
+    private final ExpiryIndex byExpiry = new ExpiryIndex();
+    private final AtomicLong sequence = new AtomicLong();
+    private final VersionCounter version = new VersionCounter();
+    private final Object writeLock = new Object();
 
     @Autowired
     private PublicationsService publicationsDao;
@@ -68,68 +114,405 @@ public class InMemorySubscriptionsDao implements SubscriptionsService, Initializ
     @Autowired
     private TemplatesDaoFactory templatesDaoFactory;
 
+    public InMemorySubscriptionsDao() {
+        this.indexes.put(PUBLICATIONS_FILTER, byPublication);
+        this.indexes.put(TEMPLATES_FILTER, byTemplate);
+        this.indexes.put(USERS_FILTER, byUser);
+        this.indexes.put(ENABLED_FILTER, byEnabled);
+    }
+
     @Override
-    public synchronized boolean hasSubscription(String id) {
+    public boolean hasSubscription(String id) {
         return subscriptions.containsKey(id);
     }
 
     @Override
-    public synchronized QueryResult<Subscription> getSubscriptions(Pagination p) {
-        List<Subscription> result = Collections.unmodifiableList(new ArrayList<>(subscriptions.values()));
-        return new QueryResult<>(result, result.size());
+    public QueryResult<Subscription> getSubscriptions(Pagination p) {
+        Map<String, String[]> parameters = null;
+        RequestContext context = RequestContext.retrieveFromThreadLocal();
+        if (context != null) {
+            parameters = context.getParameters();
+        }
+
+        /*
+        * the smallest index of a single-valued filter drives the iteration,
+        * all other filters are checked per subscription
+        */
+        Collection<SubscriptionImpl> candidates = ordered.values();
+        int candidateCount = subscriptions.size();
+        Predicate<SubscriptionImpl> driving = null;
+        List<Predicate<SubscriptionImpl>> filters = new ArrayList<>();
+        for (Map.Entry<String, Index> filter : indexes.entrySet()) {
+            Set<String> values = filterValues(parameters, filter.getKey());
+            if (values == null) {
+                continue;
+            }
+
+            Index index = filter.getValue();
+            Predicate<SubscriptionImpl> predicate = s -> values.contains(index.keyOf(s));
+            filters.add(predicate);
+            if (values.size() == 1) {
+                Bucket indexed = index.get(values.iterator().next());
+                if (indexed.size < candidateCount) {
+                    candidates = indexed.entries.values();
+                    candidateCount = indexed.size;
+                    driving = predicate;
+                }
+            }
+        }
+
+        Set<String> expired = filterValues(parameters, EXPIRED_FILTER);
+        if (expired != null) {
+            long now = System.currentTimeMillis();
+            Predicate<SubscriptionImpl> predicate = s -> expired.contains(Boolean.toString(isExpired(s, now)));
+            filters.add(predicate);
+            if (expired.size() == 1 && expired.contains(Boolean.TRUE.toString())) {
+                NavigableMap<Long, SubscriptionImpl> indexed = byExpiry.expired(now);
+                if (indexed.size() < candidateCount) {
+                    candidates = indexed.values();
+                    candidateCount = indexed.size();
+                    driving = predicate;
+                }
+            }
+        }
+
+        /*
+        * the candidates match the driving filter. Without further filters,
+        * their number is the total and the iteration stops after the page
+        */
+        filters.remove(driving);
+        boolean counted = filters.isEmpty();
+
+        int offset = p != null ? Math.max(0, p.getOffset()) : 0;
+        int limit = p != null ? p.getLimit() : Integer.MAX_VALUE;
+        List<Subscription> page = new ArrayList<>(Math.min(Math.max(limit, 0), 100));
+        long matched = 0;
+        for (SubscriptionImpl s : candidates) {
+            if (counted && page.size() >= limit) {
+                break;
+            }
+            if (!matches(s, filters)) {
+                continue;
+            }
+            if (matched >= offset && page.size() < limit) {
+                page.add(s);
+            }
+            matched++;
+        }
+
+        return new QueryResult<>(Collections.unmodifiableList(page), counted ? candidateCount : matched);
     }
 
     @Override
-    public synchronized Subscription getSubscription(String id) throws UnknownSubscriptionException {
-        if (!hasSubscription(id)) {
+    public Subscription getSubscription(String id) throws UnknownSubscriptionException {
+        Entry entry = subscriptions.get(id);
+        if (entry == null) {
             throw new UnknownSubscriptionException("Subscription does not exist: "+id);
         }
 
-        return subscriptions.get(id);
+        return entry.subscription;
     }
 
     @Override
-    public synchronized void addSubscription(String subId, Subscription subscription) {
-        if (subscription instanceof SubscriptionImpl) {
-            this.subscriptions.put(subId, (SubscriptionImpl) subscription);
+    public void addSubscription(String subId, Subscription subscription) {
+        synchronized (writeLock) {
+            put(subId, subscription, version.increment());
         }
+    }
 
+    @Override
+    public void addSubscriptions(Map<String, Subscription> subs) {
+        synchronized (writeLock) {
+            long current = version.increment();
+            subs.forEach((String subId, Subscription subscription) -> put(subId, subscription, current));
+        }
+    }
+
+    private void put(String subId, Subscription subscription, long subscriptionVersion) {
+        if (subscription instanceof SubscriptionImpl) {
+            Entry previous = this.subscriptions.get(subId);
+            if (previous != null) {
+                unindex(previous);
+            }
+
+            Entry entry = new Entry(sequence.getAndIncrement(), (SubscriptionImpl) subscription);
+            entry.version = subscriptionVersion;
+            this.subscriptions.put(subId, entry);
+            index(entry);
+        }
     }
 
     @Override
-    public synchronized Subscription updateEndOfLife(String id, DateTime eol) throws UnknownSubscriptionException {
-        if (hasSubscription(id)) {
-            Subscription sub = this.subscriptions.get(id);
+    public Subscription updateEndOfLife(String id, DateTime eol) throws UnknownSubscriptionException {
+        synchronized (writeLock) {
+            Entry entry = this.subscriptions.get(id);
+            if (entry == null) {
+                throw new UnknownSubscriptionException("Subscription does not exist: "+id);
+            }
+
+            SubscriptionImpl sub = entry.subscription;
+            byExpiry.remove(entry);
             sub.setModified(new DateTime());
             sub.setEndOfLife(eol);
+            byExpiry.add(entry);
+            entry.version = version.increment();
             return sub;
         }
-        else {
-            throw new UnknownSubscriptionException("Subscription does not exist: "+id);
-        }
     }
 
     @Override
-    public synchronized Subscription updateStatus(String id, boolean enabled) throws UnknownSubscriptionException {
-        if (hasSubscription(id)) {
-            SubscriptionImpl sub = this.subscriptions.get(id);
+    public Subscription updateStatus(String id, boolean enabled) throws UnknownSubscriptionException {
+        synchronized (writeLock) {
+            Entry entry = this.subscriptions.get(id);
+            if (entry == null) {
+                throw new UnknownSubscriptionException("Subscription does not exist: "+id);
+            }
+
+            SubscriptionImpl sub = entry.subscription;
+            byEnabled.remove(entry);
             sub.setModified(new DateTime());
             sub.setEnabled(enabled);
+            byEnabled.add(entry);
+            entry.version = version.increment();
             return sub;
         }
-        else {
-            throw new UnknownSubscriptionException("Subscription does not exist: "+id);
+    }
+
+    @Override
+    public void remove(String id) throws UnknownSubscriptionException {
+        synchronized (writeLock) {
+            Entry entry = this.subscriptions.remove(id);
+            if (entry == null) {
+                throw new UnknownSubscriptionException("Subscription does not exist: "+id);
+            }
+            unindex(entry);
+            version.increment();
         }
     }
 
     @Override
-    public synchronized void remove(String id) throws UnknownSubscriptionException {
-        if (hasSubscription(id)) {
-            this.subscriptions.remove(id);
+    public OptionalLong getSubscriptionVersion(String id) {
+        Entry entry = subscriptions.get(id);
+        return entry != null ? OptionalLong.of(entry.version) : OptionalLong.empty();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.getVersion();
+    }
+
+    @Override
+    public long getLastModified() {
+        return version.getLastModified();
+    }
+
+    /**
+     * @return a live view of all subscriptions, ordered by insertion
+     */
+    Collection<SubscriptionImpl> allSubscriptions() {
+        return Collections.unmodifiableCollection(ordered.values());
+    }
+
+    /**
+     * removes all subscriptions
+     */
+    void clear() {
+        synchronized (writeLock) {
+            subscriptions.clear();
+            ordered.clear();
+            indexes.values().forEach(i -> i.buckets.clear());
+            byExpiry.clear();
+            version.increment();
         }
-        else {
-            throw new UnknownSubscriptionException("Subscription does not exist: "+id);
+    }
+
+    private void index(Entry entry) {
+        ordered.put(entry.sequence, entry.subscription);
+        indexes.values().forEach(i -> i.add(entry));
+        byExpiry.add(entry);
+    }
+
+    private void unindex(Entry entry) {
+        ordered.remove(entry.sequence);
+        indexes.values().forEach(i -> i.remove(entry));
+        byExpiry.remove(entry);
+    }
+
+    private static boolean matches(SubscriptionImpl s, List<Predicate<SubscriptionImpl>> filters) {
+        for (Predicate<SubscriptionImpl> f : filters) {
+            if (!f.test(s)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the comma-separated values of a filter parameter, or null if
+     * the filter is absent
+     */
+    private static Set<String> filterValues(Map<String, String[]> parameters, String key) {
+        if (parameters == null || !parameters.containsKey(key) || parameters.get(key) == null) {
+            return null;
+        }
+
+        Set<String> result = new HashSet<>();
+        for (String value : parameters.get(key)) {
+            if (value != null) {
+                Arrays.stream(value.split(",")).map(String::trim).filter(v -> !v.isEmpty())
+                        .forEach(result::add);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    private static boolean isEnabled(SubscriptionImpl s) {
+        return !Boolean.FALSE.equals(s.getEnabled());
+    }
+
+    private static boolean isExpired(SubscriptionImpl s, long now) {
+        return Boolean.TRUE.equals(s.getExpired())
+                || (s.getEndOfLife() != null && s.getEndOfLife().isBefore(now));
+    }
+
+    private static final class Entry {
+
+        private final long sequence;
+        private final SubscriptionImpl subscription;
+        private volatile long version;
+
+        /*
+        * the index keys at the time of indexing, attributes may change later
+        */
+        private final Map<Index, String> keys = new ConcurrentHashMap<>();
+        private EndOfLife endOfLife;
+
+        private Entry(long sequence, SubscriptionImpl subscription) {
+            this.sequence = sequence;
+            this.subscription = subscription;
+        }
+
+    }
+
+    /**
+     * subscriptions by one attribute. Modified under the write lock only.
+     */
+    private static final class Index {
+
+        private static final Bucket EMPTY = new Bucket();
+
+        private final Function<SubscriptionImpl, String> attribute;
+        private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        private Index(Function<SubscriptionImpl, String> attribute) {
+            this.attribute = attribute;
+        }
+
+        private String keyOf(SubscriptionImpl s) {
+            return attribute.apply(s);
+        }
+
+        private Bucket get(String key) {
+            return buckets.getOrDefault(key, EMPTY);
+        }
+
+        private void add(Entry entry) {
+            String key = keyOf(entry.subscription);
+            if (key != null) {
+                Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+                bucket.entries.put(entry.sequence, entry.subscription);
+                bucket.size++;
+                entry.keys.put(this, key);
+            }
+        }
+
+        private void remove(Entry entry) {
+            String key = entry.keys.remove(this);
+            Bucket bucket = key != null ? buckets.get(key) : null;
+            if (bucket != null && bucket.entries.remove(entry.sequence) != null) {
+                bucket.size--;
+                if (bucket.size == 0) {
+                    buckets.remove(key, bucket);
+                }
+            }
         }
+
+    }
+
+    /**
+     * subscriptions flagged as expired and subscriptions by end of life, so
+     * that the expired ones are found without a scan. Modified under the
+     * write lock only.
+     */
+    private static final class ExpiryIndex {
+
+        private final NavigableMap<Long, SubscriptionImpl> flagged = new ConcurrentSkipListMap<>();
+        private final NavigableMap<EndOfLife, SubscriptionImpl> byEndOfLife = new ConcurrentSkipListMap<>();
+
+        private void add(Entry entry) {
+            SubscriptionImpl s = entry.subscription;
+            if (Boolean.TRUE.equals(s.getExpired())) {
+                flagged.put(entry.sequence, s);
+            }
+            if (s.getEndOfLife() != null) {
+                entry.endOfLife = new EndOfLife(s.getEndOfLife().getMillis(), entry.sequence);
+                byEndOfLife.put(entry.endOfLife, s);
+            }
+        }
+
+        private void remove(Entry entry) {
+            flagged.remove(entry.sequence);
+            if (entry.endOfLife != null) {
+                byEndOfLife.remove(entry.endOfLife);
+                entry.endOfLife = null;
+            }
+        }
+
+        /**
+         * @return the subscriptions expired at the given time, ordered by
+         * insertion
+         */
+        private NavigableMap<Long, SubscriptionImpl> expired(long now) {
+            NavigableMap<Long, SubscriptionImpl> result = new TreeMap<>(flagged);
+            byEndOfLife.headMap(new EndOfLife(now, Long.MIN_VALUE))
+                    .forEach((EndOfLife k, SubscriptionImpl s) -> result.put(k.sequence, s));
+            return result;
+        }
+
+        private void clear() {
+            flagged.clear();
+            byEndOfLife.clear();
+        }
+
+    }
+
+    private static final class EndOfLife implements Comparable<EndOfLife> {
+
+        private final long millis;
+        private final long sequence;
+
+        private EndOfLife(long millis, long sequence) {
+            this.millis = millis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(EndOfLife o) {
+            int result = Long.compare(millis, o.millis);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+
+    }
+
+    /**
+     * the subscriptions with one attribute value, ordered by insertion. The
+     * size is tracked separately as the skip list counts by traversal.
+     */
+    private static final class Bucket {
+
+        private final NavigableMap<Long, SubscriptionImpl> entries = new ConcurrentSkipListMap<>();
+        private volatile int size;
+
     }
 
     @Override
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Durable {@link SubscriptionsService}: an {@link InMemorySubscriptionsDao}
+ * which appends every change to a {@link SubscriptionJournal} in a local
+ * directory. On startup, the last snapshot and the journal are replayed
+ * before the {@link SubscriptionManager} registers the subscriptions.
+ * <p>
+ * The journal is compacted into a new snapshot once it holds more than the
+ * configured number of entries, and on shutdown. The state is captured under
+ * the journal lock, the snapshot file is written without holding it.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class JournaledSubscriptionsDao extends InMemorySubscriptionsDao implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournaledSubscriptionsDao.class.getName());
+
+    private static final byte PUT = 1;
+    private static final byte END_OF_LIFE = 2;
+    private static final byte STATUS = 3;
+    private static final byte REMOVE = 4;
+
+    @Autowired(required = false)
+    private Configuration config;
+
+    private Path directory;
+    private int compactionThreshold = 10000;
+    private boolean sync;
+    private SubscriptionJournal journal;
+    private ScheduledExecutorService compactionExecutor;
+    private final Object journalLock = new Object();
+    private final Object compactionLock = new Object();
+
+    public JournaledSubscriptionsDao() {
+    }
+
+    /**
+     * @param directory the journal directory
+     * @param compactionThreshold the number of journal entries after which a
+     * new snapshot is written
+     * @param sync true to force every change to the storage device
+     */
+    public JournaledSubscriptionsDao(Path directory, int compactionThreshold, boolean sync) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.sync = sync;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+
+        if (this.config != null) {
+            this.config.getParameter("subscriptions.journal.directory")
+                    .ifPresent(d -> this.directory = Paths.get(d));
+            this.compactionThreshold = this.config.getParameterAsInt("subscriptions.journal.compactAfter")
+                    .orElse(this.compactionThreshold);
+            this.sync = this.config.getParameterAsBoolean("subscriptions.journal.sync")
+                    .orElse(this.sync);
+        }
+
+        if (this.directory == null) {
+            this.directory = resolveDefaultDirectory();
+        }
+        if (isTemporary(this.directory)) {
+            LOG.warn("The subscription journal is kept in the temporary directory {}, subscriptions may be lost "
+                    + "on reboot. Configure 'subscriptions.journal.directory' to keep them.", this.directory);
+        }
+        else {
+            LOG.info("Keeping the subscription journal in {}", this.directory);
+        }
+
+        long start = System.currentTimeMillis();
+        int entries;
+        synchronized (journalLock) {
+            this.journal = new SubscriptionJournal(this.directory, this.sync);
+            entries = this.journal.restore(new SubscriptionJournal.Replayer() {
+                @Override
+                public void replay(ByteBuffer entry) {
+                    try {
+                        apply(entry);
+                    }
+                    catch (IOException | UnknownSubscriptionException | RuntimeException e) {
+                        LOG.warn("Skipping unreadable subscription journal entry: {}", e.getMessage());
+                        LOG.debug(e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public void reset() {
+                    clear();
+                }
+            });
+        }
+
+        LOG.info("Restored {} subscriptions from {} journal entries at {} in {} ms",
+                allSubscriptions().size(), entries, this.directory, System.currentTimeMillis() - start);
+
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "subscription-journal-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        this.compactionExecutor.scheduleWithFixedDelay(() -> {
+            if (this.journal.getJournalEntries() >= this.compactionThreshold) {
+                compact();
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return a directory below the user's home, or below the temporary
+     * directory if the home is not writable
+     */
+    private static Path resolveDefaultDirectory() {
+        Path home = Paths.get(System.getProperty("user.home"));
+        if (Files.isDirectory(home) && Files.isWritable(home)) {
+            return home.resolve(".eventing").resolve("subscriptions");
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "eventing-subscriptions");
+    }
+
+    private static boolean isTemporary(Path dir) {
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        return dir.toAbsolutePath().normalize().startsWith(tmp);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.compactionExecutor != null) {
+            this.compactionExecutor.shutdownNow();
+        }
+
+        if (this.journal != null) {
+            if (this.journal.getJournalEntries() > 0) {
+                compact();
+            }
+            this.journal.close();
+        }
+    }
+
+    @Override
+    public void addSubscription(String subId, Subscription subscription) {
+        synchronized (journalLock) {
+            super.addSubscription(subId, subscription);
+            if (subscription instanceof SubscriptionImpl) {
+                append(PUT, subId, out -> SubscriptionRecords.write(out, (SubscriptionImpl) subscription));
+            }
+        }
+    }
+
+    @Override
+    public void addSubscriptions(Map<String, Subscription> subscriptions) {
+        synchronized (journalLock) {
+            super.addSubscriptions(subscriptions);
+            if (this.journal == null) {
+                return;
+            }
+
+            List<byte[]> entries = new ArrayList<>(subscriptions.size());
+            try {
+                for (Map.Entry<String, Subscription> e : subscriptions.entrySet()) {
+                    if (e.getValue() instanceof SubscriptionImpl) {
+                        SubscriptionImpl sub = (SubscriptionImpl) e.getValue();
+                        entries.add(entry(PUT, e.getKey(), out -> SubscriptionRecords.write(out, sub)));
+                    }
+                }
+                this.journal.append(entries);
+            }
+            catch (IOException e) {
+                LOG.warn("Could not journal {} new subscriptions, they will be lost on restart: {}",
+                        subscriptions.size(), e.getMessage());
+                LOG.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public Subscription updateEndOfLife(String id, DateTime eol) throws UnknownSubscriptionException {
+        synchronized (journalLock) {
+            SubscriptionImpl sub = (SubscriptionImpl) super.updateEndOfLife(id, eol);
+            append(END_OF_LIFE, id, out -> {
+                SubscriptionRecords.writeTime(out, eol);
+                SubscriptionRecords.writeTime(out, sub.getModified());
+            });
+            return sub;
+        }
+    }
+
+    @Override
+    public Subscription updateStatus(String id, boolean enabled) throws UnknownSubscriptionException {
+        synchronized (journalLock) {
+            SubscriptionImpl sub = (SubscriptionImpl) super.updateStatus(id, enabled);
+            append(STATUS, id, out -> {
+                SubscriptionRecords.writeBoolean(out, enabled);
+                SubscriptionRecords.writeTime(out, sub.getModified());
+            });
+            return sub;
+        }
+    }
+
+    @Override
+    public void remove(String id) throws UnknownSubscriptionException {
+        synchronized (journalLock) {
+            super.remove(id);
+            append(REMOVE, id, out -> {});
+        }
+    }
+
+    /**
+     * writes a snapshot of all subscriptions and starts a new journal
+     */
+    void compact() {
+        synchronized (compactionLock) {
+            try {
+                List<byte[]> entries;
+                long generation;
+                synchronized (journalLock) {
+                    Collection<SubscriptionImpl> all = allSubscriptions();
+                    entries = new ArrayList<>(all.size());
+                    for (SubscriptionImpl s : all) {
+                        entries.add(entry(PUT, s.getId(), out -> SubscriptionRecords.write(out, s)));
+                    }
+                    generation = this.journal.rotate();
+                }
+
+                this.journal.writeSnapshot(generation, entries);
+            }
+            catch (IOException e) {
+                LOG.warn("Could not compact the subscription journal: {}", e.getMessage());
+                LOG.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer entry) throws IOException, UnknownSubscriptionException {
+        byte type = entry.get();
+        String id = SubscriptionRecords.readString(entry);
+        switch (type) {
+            case PUT:
+                super.addSubscription(id, SubscriptionRecords.read(entry));
+                break;
+            case END_OF_LIFE:
+                DateTime eol = SubscriptionRecords.readTime(entry);
+                DateTime eolModified = SubscriptionRecords.readTime(entry);
+                if (hasSubscription(id)) {
+                    ((SubscriptionImpl) super.updateEndOfLife(id, eol)).setModified(eolModified);
+                }
+                break;
+            case STATUS:
+                Boolean enabled = SubscriptionRecords.readBoolean(entry);
+                DateTime statusModified = SubscriptionRecords.readTime(entry);
+                if (hasSubscription(id)) {
+                    ((SubscriptionImpl) super.updateStatus(id, Boolean.TRUE.equals(enabled)))
+                            .setModified(statusModified);
+                }
+                break;
+            case REMOVE:
+                if (hasSubscription(id)) {
+                    super.remove(id);
+                }
+                break;
+            default:
+                throw new IOException("Unknown subscription journal entry type: " + type);
+        }
+    }
+
+    private void append(byte type, String id, EntryWriter body) {
+        if (this.journal == null) {
+            return;
+        }
+
+        try {
+            this.journal.append(entry(type, id, body));
+        }
+        catch (IOException e) {
+            LOG.warn("Could not journal a change of subscription {}, it will be lost on restart: {}",
+                    id, e.getMessage());
+            LOG.debug(e.getMessage(), e);
+        }
+    }
+
+    private static byte[] entry(byte type, String id, EntryWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        SubscriptionRecords.writeString(out, id);
+        body.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+
+        void write(DataOutputStream out) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of opaque entries with compacted snapshots, kept in
+ * one directory. Both file types are organized in generations:
+ * <code>subscriptions-&lt;n&gt;.snapshot</code> holds the complete state at
+ * the time <code>subscriptions-&lt;n&gt;.journal</code> was started, which
+ * holds the changes since then. Both are laid out as:
+ *
+ * <pre>
+ * int   magic, int version
+ * int   length, int crc32, byte[length] entry, repeated
+ * </pre>
+ *
+ * A snapshot ends with a length of 0, a journal ends at the end of the file.
+ * <p>
+ * On restore, the newest complete snapshot is read and all journals of its
+ * generation and later are replayed. A torn entry at the end of the current
+ * journal, e.g. after a crash, is cut off. Compaction first
+ * {@link #rotate() rotates} to a new journal generation and then
+ * {@link #writeSnapshot(long, List) writes} the snapshot of that generation,
+ * which makes all older files obsolete. A crash in between leaves the older
+ * snapshot and journals in place.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class SubscriptionJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriptionJournal.class.getName());
+
+    private static final int MAGIC = 0x5342534a;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    private static final String PREFIX = "subscriptions-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final Pattern FILE_NAME = Pattern.compile(
+            Pattern.quote(PREFIX) + "(\\d+)(" + Pattern.quote(SNAPSHOT_SUFFIX) + "|"
+                    + Pattern.quote(JOURNAL_SUFFIX) + ")");
+
+    private final Path directory;
+    private final boolean sync;
+    private final CRC32 crc = new CRC32();
+    private FileChannel journal;
+    private long generation;
+    private int entries;
+
+    /**
+     * @param directory the journal directory
+     * @param sync true to force every appended entry to the storage device
+     */
+    SubscriptionJournal(Path directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+    }
+
+    /**
+     * replays the last snapshot and the journals written since, and opens the
+     * journal for appending
+     *
+     * @param target receives the entries in the order they were appended
+     * @return the number of replayed entries
+     * @throws IOException if the directory could not be read or the journal
+     * not be opened
+     */
+    synchronized int restore(Replayer target) throws IOException {
+        Files.createDirectories(this.directory);
+
+        TreeSet<Long> snapshots = new TreeSet<>();
+        TreeSet<Long> journals = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, PREFIX + "*")) {
+            for (Path file : stream) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    (SNAPSHOT_SUFFIX.equals(m.group(2)) ? snapshots : journals).add(Long.parseLong(m.group(1)));
+                }
+            }
+        }
+
+        int count = 0;
+        long base = 0;
+        for (Long candidate : snapshots.descendingSet()) {
+            try {
+                count = replay(file(candidate, SNAPSHOT_SUFFIX), target, true);
+                base = candidate;
+                break;
+            }
+            catch (IOException | BufferUnderflowException e) {
+                LOG.warn("Ignoring incomplete subscription snapshot {}: {}",
+                        file(candidate, SNAPSHOT_SUFFIX), e.getMessage());
+                count = 0;
+                target.reset();
+            }
+        }
+
+        this.generation = Math.max(base, journals.isEmpty() ? 0 : journals.last());
+        for (Long journalGeneration : journals.tailSet(base)) {
+            Path file = file(journalGeneration, JOURNAL_SUFFIX);
+            long valid = FILE_HEADER_SIZE;
+            int replayed = 0;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() >= FILE_HEADER_SIZE
+                        && buffer.getInt() == MAGIC && buffer.getInt() == VERSION) {
+                    ByteBuffer entry;
+                    while ((entry = nextEntry(buffer)) != null) {
+                        target.replay(entry);
+                        valid = buffer.position();
+                        replayed++;
+                    }
+                }
+            }
+
+            if (valid < Files.size(file)) {
+                LOG.warn("Cutting off {} bytes of a torn entry from subscription journal {}",
+                        Files.size(file) - valid, file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+
+            count += replayed;
+            if (journalGeneration == this.generation) {
+                this.entries = replayed;
+            }
+        }
+
+        openJournal();
+        deleteBefore(base);
+        return count;
+    }
+
+    /**
+     * @param entry the entry to append
+     * @throws IOException if the entry could not be written
+     */
+    synchronized void append(byte[] entry) throws IOException {
+        append(Collections.singletonList(entry));
+    }
+
+    /**
+     * appends several entries with a single write
+     *
+     * @param newEntries the entries to append
+     * @throws IOException if the entries could not be written
+     */
+    synchronized void append(List<byte[]> newEntries) throws IOException {
+        if (this.journal == null) {
+            throw new IOException("Subscription journal is not open: " + this.directory);
+        }
+
+        int size = 0;
+        for (byte[] entry : newEntries) {
+            size += ENTRY_HEADER_SIZE + entry.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] entry : newEntries) {
+            buffer.putInt(entry.length);
+            buffer.putInt(checksum(ByteBuffer.wrap(entry)));
+            buffer.put(entry);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.journal.write(buffer);
+        }
+
+        if (this.sync) {
+            this.journal.force(false);
+        }
+        this.entries += newEntries.size();
+    }
+
+    /**
+     * @return the number of entries in the current journal
+     */
+    synchronized int getJournalEntries() {
+        return entries;
+    }
+
+    /**
+     * starts a new journal generation. The snapshot of that generation has to
+     * hold the state at the time of the rotation.
+     *
+     * @return the new generation
+     * @throws IOException if the new journal could not be created
+     */
+    synchronized long rotate() throws IOException {
+        closeJournal();
+        this.generation++;
+        openJournal();
+        return this.generation;
+    }
+
+    /**
+     * writes the snapshot of a generation and deletes all older files
+     *
+     * @param snapshotGeneration the generation returned by {@link #rotate()}
+     * @param snapshotEntries the entries that restore the state of the
+     * generation
+     * @throws IOException if the snapshot could not be written
+     */
+    void writeSnapshot(long snapshotGeneration, List<byte[]> snapshotEntries) throws IOException {
+        long start = System.currentTimeMillis();
+        Path target = file(snapshotGeneration, SNAPSHOT_SUFFIX);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Channels.newOutputStream(channel), 1024 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (byte[] entry : snapshotEntries) {
+                out.writeInt(entry.length);
+                out.writeInt(checksum(ByteBuffer.wrap(entry)));
+                out.write(entry);
+            }
+            out.writeInt(0);
+
+            /*
+            * on the device before the rename, the journals it replaces are
+            * deleted right after
+            */
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(snapshotGeneration);
+        LOG.info("Wrote {} subscriptions to snapshot {} in {} ms", snapshotEntries.size(), target,
+                System.currentTimeMillis() - start);
+    }
+
+    synchronized void close() throws IOException {
+        closeJournal();
+    }
+
+    private int replay(Path file, Replayer target, boolean snapshot) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("unknown format");
+            }
+
+            ByteBuffer entry;
+            while ((entry = nextEntry(buffer)) != null) {
+                target.replay(entry);
+                count++;
+            }
+
+            if (snapshot && (buffer.remaining() < 4 || buffer.getInt() != 0)) {
+                throw new IOException("missing end marker");
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the next entry, or null at the end of the entries or at a
+     * damaged entry. The buffer is left at the start of the entry in that
+     * case.
+     */
+    private ByteBuffer nextEntry(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < ENTRY_HEADER_SIZE) {
+            return null;
+        }
+
+        int length = buffer.getInt();
+        int expected = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+
+        ByteBuffer entry = buffer.slice();
+        entry.limit(length);
+        if (checksum(entry.duplicate()) != expected) {
+            buffer.position(start);
+            return null;
+        }
+
+        buffer.position(buffer.position() + length);
+        return entry;
+    }
+
+    private int checksum(ByteBuffer bytes) {
+        synchronized (crc) {
+            crc.reset();
+            crc.update(bytes);
+            return (int) crc.getValue();
+        }
+    }
+
+    private void openJournal() throws IOException {
+        Path file = file(this.generation, JOURNAL_SUFFIX);
+        boolean created = !Files.exists(file) || Files.size(file) < FILE_HEADER_SIZE;
+        this.journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (created) {
+            this.journal.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                this.journal.write(header);
+            }
+            this.entries = 0;
+        }
+        this.journal.position(this.journal.size());
+    }
+
+    private void closeJournal() throws IOException {
+        if (this.journal != null) {
+            this.journal.force(false);
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+
+    private void deleteBefore(long keptGeneration) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, PREFIX + "*")) {
+            for (Path file : stream) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches() && Long.parseLong(m.group(1)) < keptGeneration) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path file(long fileGeneration, String suffix) {
+        return this.directory.resolve(PREFIX + fileGeneration + suffix);
+    }
+
+    interface Replayer {
+
+        /**
+         * @param entry an entry, positioned at its start
+         * @throws IOException if the entry could not be applied
+         */
+        void replay(ByteBuffer entry) throws IOException;
+
+        /**
+         * discards all entries replayed so far, called if a snapshot turns
+         * out to be incomplete
+         */
+        void reset();
+
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -27,6 +27,7 @@
  */
 package org.n52.eventing.rest.subscriptions;
 
+import java.util.List;
 import org.n52.eventing.rest.model.Subscription;
 import org.n52.eventing.rest.users.User;
 
@@ -38,8 +39,50 @@ public interface SubscriptionManager {
 
     String subscribe(Subscription subDef, User user) throws InvalidSubscriptionException;
 
+    /**
+     * creates several subscriptions, validating all of them before they are
+     * registered together
+     *
+     * @param subDefs the subscription definitions
+     * @param user the owner of the subscriptions
+     * @return a result per definition, in the same order
+     */
+    List<BulkResult> subscribe(List<Subscription> subDefs, User user);
+
     void updateSubscription(SubscriptionUpdate subDef, User user) throws InvalidSubscriptionException;
 
+    /**
+     * updates the subscription only if it is still in the expected version,
+     * see {@link SubscriptionsService#getSubscriptionVersion(String)}
+     *
+     * @param subDef the update
+     * @param user the user requesting the update
+     * @param expectedVersion the version the update is based on
+     * @throws SubscriptionModifiedException if the subscription has been
+     * modified in the meantime
+     * @throws InvalidSubscriptionException if the update is invalid
+     */
+    void updateSubscription(SubscriptionUpdate subDef, User user, long expectedVersion) throws InvalidSubscriptionException;
+
+    /**
+     * @param updates the updates, each with the id of its subscription
+     * @param user the user requesting the updates
+     * @return a result per update, in the same order
+     */
+    List<BulkResult> updateSubscriptions(List<SubscriptionUpdate> updates, User user);
+
     void removeSubscription(String id, User user) throws InvalidSubscriptionException;
 
+    /**
+     * @param ids the ids of the subscriptions to remove
+     * @param user the user requesting the removal
+     * @return a result per id, in the same order
+     */
+    List<BulkResult> removeSubscriptions(List<String> ids, User user);
+
+    /**
+     * @return the progress of registering the persisted subscriptions
+     */
+    BootstrapStatus getBootstrapStatus();
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -28,13 +28,34 @@
 package org.n52.eventing.rest.subscriptions;
 
 import org.n52.eventing.rest.model.Subscription;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import org.joda.time.DateTime;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.eventlog.EventLogCapacityResolver;
+import org.n52.eventing.rest.eventlog.EventLogStore;
 import org.n52.eventing.rest.factory.TemplatesDaoFactory;
 import org.n52.eventing.rest.model.TemplateDefinition;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.statistics.MatchStatistics;
+import org.n52.eventing.rest.templates.TemplatesDao;
 import org.n52.eventing.rest.templates.UnknownTemplateException;
 import org.n52.eventing.rest.users.User;
 import org.n52.subverse.termination.Terminatable;
@@ -45,7 +66,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.n52.eventing.rest.publications.PublicationsService;
-import org.n52.subverse.termination.QuartzTerminationScheduler;
 import org.springframework.beans.factory.DisposableBean;
 
 /**
@@ -68,57 +88,288 @@ public class SubscriptionManagerImpl implements SubscriptionManager, Initializin
     @Autowired
     private FilterLogic filterLogic;
 
+    @Autowired(required = false)
+    private EventLogStore eventLogStore;
+
+    @Autowired(required = false)
+    private MatchStatistics matchStatistics;
+
+    @Autowired(required = false)
+    private Configuration config;
+
+    @Autowired(required = false)
+    private EventLogCapacityResolver eventLogCapacityResolver;
+
     private TerminationScheduler terminator;
 
-    private final Map<Subscription, SubscriptionManagerImpl.SubscriptionTerminatable> subscriptionToTerminatableMap = new HashMap<>();
+    private int bootstrapThreads = Runtime.getRuntime().availableProcessors();
+    private volatile ExecutorService bootstrapExecutor;
+    private volatile boolean ready;
+    private volatile int bootstrapTotal;
+    private volatile long bootstrapStarted;
+    private volatile long bootstrapMillis;
+    private final AtomicInteger bootstrapRegistered = new AtomicInteger();
+    private final AtomicInteger bootstrapFailed = new AtomicInteger();
+    private final AtomicInteger bootstrapExpired = new AtomicInteger();
+
+    private final Map<String, SubscriptionManagerImpl.SubscriptionTerminatable> subscriptionToTerminatableMap = new ConcurrentHashMap<>();
+
+    /*
+    * updates of a subscription are serialized, so that a conditional update
+    * cannot interleave with another one
+    */
+    private final Object[] updateLocks = new Object[64];
+
+    {
+        for (int i = 0; i < updateLocks.length; i++) {
+            updateLocks[i] = new Object();
+        }
+    }
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        terminator = new QuartzTerminationScheduler();
+        long tickMillis = TimingWheelTerminationScheduler.DEFAULT_TICK_MILLIS;
+        boolean async = true;
+        if (this.config != null) {
+            tickMillis = this.config.getParameterAsInt("subscriptions.expiry.tickMillis")
+                    .map(Integer::longValue).orElse(tickMillis);
+            this.bootstrapThreads = this.config.getParameterAsInt("subscriptions.bootstrap.threads")
+                    .orElse(this.bootstrapThreads);
+            async = this.config.getParameterAsBoolean("subscriptions.bootstrap.async").orElse(async);
+        }
+        terminator = new TimingWheelTerminationScheduler(tickMillis,
+                TimingWheelTerminationScheduler.DEFAULT_WHEEL_SIZE);
+
+        if (async) {
+            Thread t = new Thread(this::bootstrap, "subscription-bootstrap");
+            t.setDaemon(true);
+            t.start();
+        }
+        else {
+            bootstrap();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        ExecutorService executor = this.bootstrapExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (this.terminator != null) {
+            this.terminator.shutdown();
+        }
+    }
 
+    @Override
+    public BootstrapStatus getBootstrapStatus() {
+        long started = this.bootstrapStarted;
+        long elapsed = this.ready ? this.bootstrapMillis
+                : (started > 0 ? System.currentTimeMillis() - started : 0);
+        return new BootstrapStatus(this.ready, this.bootstrapTotal, this.bootstrapRegistered.get(),
+                this.bootstrapFailed.get(), this.bootstrapExpired.get(), elapsed);
+    }
+
+    /**
+     * registers the persisted subscriptions at the filter logic, in parallel
+     * on a bounded pool. Templates are resolved from a single DAO instance.
+     */
+    private void bootstrap() {
         LOG.info("Retrieveing persisted subscriptions...");
-        AtomicInteger count = new AtomicInteger();
-        this.dao.getSubscriptions(null).getResult().stream().forEach(s -> {
-            LOG.info("Registering subscription {}", s.getId());
+        this.bootstrapStarted = System.currentTimeMillis();
+        List<Subscription> subscriptions = this.dao.getSubscriptions(null).getResult();
+        this.bootstrapTotal = subscriptions.size();
+
+        TemplatesDao templates = subscriptions.isEmpty() ? null : this.templatesDaoFactory.newDao();
+        Set<String> missingTemplates = ConcurrentHashMap.newKeySet();
+        Queue<Subscription> expired = new ConcurrentLinkedQueue<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.bootstrapThreads), (Runnable r) -> {
+            Thread t = new Thread(r, "subscription-bootstrap-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.bootstrapExecutor = executor;
+
+        try {
+            for (Subscription s : subscriptions) {
+                executor.execute(() -> register(s, templates, missingTemplates, expired));
+            }
+            executor.shutdown();
+
+            while (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.info("Registered {} of {} persisted subscriptions...",
+                        this.bootstrapRegistered.get(), this.bootstrapTotal);
+            }
+        } catch (InterruptedException | RejectedExecutionException ex) {
+            LOG.warn("Registration of persisted subscriptions was interrupted");
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            this.bootstrapExecutor = null;
+        }
+
+        /*
+        * subscriptions which ended while the service was down
+        */
+        for (Subscription s : expired) {
             try {
-                if (s.getNotificationInstance() != null) {
-                    filterLogic.internalSubscribe(s, templatesDaoFactory.newDao().getTemplate(s.getNotificationInstance().getId()));
-                    count.getAndIncrement();
+                if (this.dao.hasSubscription(s.getId())) {
+                    remove(s.getId());
                 }
-            } catch (UnknownTemplateException ex) {
-                LOG.warn("Could not find template for subscription", ex);
+                this.bootstrapExpired.incrementAndGet();
             } catch (InvalidSubscriptionException ex) {
-                LOG.warn("Could not create subscription", ex);
+                LOG.warn("Could not remove expired subscription", ex);
             }
-        });
-        LOG.info("Registered {} persisted subscriptions...", count);
+        }
+
+        this.bootstrapMillis = System.currentTimeMillis() - this.bootstrapStarted;
+        this.ready = true;
+        LOG.info("Registered {} persisted subscriptions in {} ms, {} failed, removed {} expired ones",
+                this.bootstrapRegistered.get(), this.bootstrapMillis, this.bootstrapFailed.get(),
+                this.bootstrapExpired.get());
     }
 
-    @Override
-    public void destroy() throws Exception {
-        this.terminator.shutdown();
+    private void register(Subscription s, TemplatesDao templates, Set<String> missingTemplates,
+            Queue<Subscription> expired) {
+        if (s.getEndOfLife() != null && !s.getEndOfLife().isAfterNow()) {
+            expired.add(s);
+            return;
+        }
+
+        LOG.debug("Registering subscription {}", s.getId());
+        try {
+            TemplateDefinition template = null;
+            if (s.getNotificationInstance() != null) {
+                template = templates.getTemplate(s.getNotificationInstance().getId());
+            }
+            filterLogic.internalSubscribe(s, template);
+
+            /*
+            * removed by a request while bootstrapping
+            */
+            if (!this.dao.hasSubscription(s.getId())) {
+                this.filterLogic.remove(s.getId());
+                return;
+            }
+
+            applyStatus(s);
+            scheduleTermination(s);
+            this.bootstrapRegistered.incrementAndGet();
+        } catch (UnknownTemplateException ex) {
+            this.bootstrapFailed.incrementAndGet();
+            if (missingTemplates.add(s.getNotificationInstance().getId())) {
+                LOG.warn("Could not find template for subscription {}: {}", s.getId(), ex.getMessage());
+            }
+        } catch (InvalidSubscriptionException | RuntimeException ex) {
+            this.bootstrapFailed.incrementAndGet();
+            LOG.warn("Could not create subscription " + s.getId(), ex);
+        }
     }
 
 
 
     @Override
     public String subscribe(Subscription subDef, User user) throws InvalidSubscriptionException {
+        TemplatesDao templates = subDef.getNotificationInstance() != null ? this.templatesDaoFactory.newDao() : null;
+        TemplateDefinition template = prepare(subDef, user, this.publicationsDao::hasPublication, templates,
+                new DateTime());
+
+        //do the actual subscription part
+        String subId = filterLogic.internalSubscribe(subDef, template);
+        subDef.setId(subId);
+
+        applyStatus(subDef);
+        scheduleTermination(subDef);
+
+        /*
+        * finally add to the DAO
+        */
+        this.dao.addSubscription(subId, subDef);
+
+        return subId;
+    }
+
+    @Override
+    public List<BulkResult> subscribe(List<Subscription> subDefs, User user) {
+        BulkResult[] results = new BulkResult[subDefs.size()];
+        boolean withTemplates = subDefs.stream().anyMatch(s -> s != null && s.getNotificationInstance() != null);
+        TemplatesDao templates = withTemplates ? this.templatesDaoFactory.newDao() : null;
+        Map<String, Boolean> publications = new HashMap<>();
+        DateTime now = new DateTime();
+
+        /*
+        * validate all of them first, templates and publications are
+        * resolved once
+        */
+        Map<Subscription, TemplateDefinition> valid = new LinkedHashMap<>();
+        Map<Subscription, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            Subscription subDef = subDefs.get(i);
+            try {
+                if (subDef == null) {
+                    throw new InvalidSubscriptionException("Empty subscription definition");
+                }
+                valid.put(subDef, prepare(subDef, user,
+                        pubId -> publications.computeIfAbsent(pubId, this.publicationsDao::hasPublication),
+                        templates, now));
+                positions.put(subDef, i);
+            } catch (InvalidSubscriptionException ex) {
+                results[i] = BulkResult.failure(null, ex.getMessage());
+            }
+        }
+
+        /*
+        * register the valid ones as a group
+        */
+        Map<Subscription, InvalidSubscriptionException> failures = this.filterLogic.internalSubscribe(valid);
+        Map<String, Subscription> registered = new LinkedHashMap<>();
+        for (Subscription subDef : valid.keySet()) {
+            int position = positions.get(subDef);
+            InvalidSubscriptionException failure = failures.get(subDef);
+            if (failure != null) {
+                results[position] = BulkResult.failure(null, failure.getMessage());
+                continue;
+            }
+
+            applyStatus(subDef);
+            scheduleTermination(subDef);
+            registered.put(subDef.getId(), subDef);
+            results[position] = BulkResult.success(subDef.getId());
+        }
+
+        this.dao.addSubscriptions(registered);
+        LOG.info("Created {} of {} subscriptions", registered.size(), results.length);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * validates a new subscription and sets its label, user and times
+     *
+     * @return the template of the subscription, or null
+     */
+    private TemplateDefinition prepare(Subscription subDef, User user, Predicate<String> knownPublication,
+            TemplatesDao templates, DateTime now) throws InvalidSubscriptionException {
         throwExceptionOnNullOrEmpty(subDef.getPublicationId(), "publicationId");
 
         String pubId = subDef.getPublicationId();
-        if (!this.publicationsDao.hasPublication(pubId)) {
+        if (!knownPublication.test(pubId)) {
             throw new InvalidSubscriptionException("Publication unknown: "+pubId);
         }
 
         TemplateDefinition template = null;
         String desc;
         if (subDef.getNotificationInstance() != null) {
+            String templateId = subDef.getNotificationInstance().getId();
             try {
-                template = this.templatesDaoFactory.newDao().getTemplate(subDef.getNotificationInstance().getId());
+                template = templates.getTemplate(templateId);
             } catch (UnknownTemplateException ex) {
                 LOG.warn(ex.getMessage());
                 LOG.debug(ex.getMessage(), ex);
-                throw new InvalidSubscriptionException("Template unknown: "+pubId);
+                throw new InvalidSubscriptionException("Template unknown: "+templateId);
             }
             desc = String.format("Subscription using template %s. Parameters: %s", template.getId(), subDef.getNotificationInstance().getParameters());
         }
@@ -126,7 +377,9 @@ public class SubscriptionManagerImpl implements SubscriptionManager, Initializin
             desc = String.format("Subscription for publication: %s", pubId);
         }
 
-        DateTime now = new DateTime();
+        if (this.eventLogCapacityResolver != null) {
+            this.eventLogCapacityResolver.validate(subDef);
+        }
 
         String label = Optional.ofNullable(subDef.getLabel()).orElse(desc);
 
@@ -136,27 +389,34 @@ public class SubscriptionManagerImpl implements SubscriptionManager, Initializin
         subDef.setCreated(now);
         subDef.setModified(now);
 
-        //do the actual subscription part
-        String subId = filterLogic.internalSubscribe(subDef, template);
-        subDef.setId(subId);
+        return template;
+    }
 
-        if (subDef.getEndOfLife() != null) {
-            SubscriptionManagerImpl.SubscriptionTerminatable term = new SubscriptionManagerImpl.SubscriptionTerminatable(subDef);
-            terminator.scheduleTermination(term);
-            subscriptionToTerminatableMap.put(subDef, term);
-        }
 
-        /*
-        * finally add to the DAO
-        */
-        this.dao.addSubscription(subId, subDef);
+    @Override
+    public void updateSubscription(SubscriptionUpdate subDef, User user) throws InvalidSubscriptionException {
+        synchronized (updateLock(subDef.getId())) {
+            applyUpdate(subDef);
+        }
+    }
 
-        return subId;
+    @Override
+    public void updateSubscription(SubscriptionUpdate subDef, User user, long expectedVersion) throws InvalidSubscriptionException {
+        synchronized (updateLock(subDef.getId())) {
+            OptionalLong current = this.dao.getSubscriptionVersion(subDef.getId());
+            if (!current.isPresent() || current.getAsLong() != expectedVersion) {
+                throw new SubscriptionModifiedException("Subscription has been modified: "+subDef.getId());
+            }
+            applyUpdate(subDef);
+        }
     }
 
+    private Object updateLock(String id) {
+        int hash = id != null ? id.hashCode() : 0;
+        return updateLocks[(hash & Integer.MAX_VALUE) % updateLocks.length];
+    }
 
-    @Override
-    public void updateSubscription(SubscriptionUpdate subDef, User user) throws InvalidSubscriptionException {
+    private void applyUpdate(SubscriptionUpdate subDef) throws InvalidSubscriptionException {
         String eolString = subDef.getEndOfLife();
         if (eolString != null && !eolString.isEmpty()) {
             DateTime eol = parseEndOfLife(eolString);
@@ -203,30 +463,100 @@ public class SubscriptionManagerImpl implements SubscriptionManager, Initializin
         }
     }
 
+    @Override
+    public List<BulkResult> updateSubscriptions(List<SubscriptionUpdate> updates, User user) {
+        List<BulkResult> results = new ArrayList<>(updates.size());
+        for (SubscriptionUpdate update : updates) {
+            String id = update != null ? update.getId() : null;
+            try {
+                throwExceptionOnNullOrEmpty(id, "id");
+                updateSubscription(update, user);
+                results.add(BulkResult.success(id));
+            } catch (InvalidSubscriptionException ex) {
+                results.add(BulkResult.failure(id, ex.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<BulkResult> removeSubscriptions(List<String> ids, User user) {
+        List<BulkResult> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                throwExceptionOnNullOrEmpty(id, "id");
+                removeSubscription(id, user);
+                results.add(BulkResult.success(id));
+            } catch (InvalidSubscriptionException ex) {
+                results.add(BulkResult.failure(id, ex.getMessage()));
+            }
+        }
+        return results;
+    }
+
     private void resume(String id) {
-        LOG.debug("TODO: Implement resume");
+        if (!this.filterLogic.resume(id)) {
+            LOG.warn("Could not resume subscription {}", id);
+        }
     }
 
     private void pause(String id) {
-        LOG.debug("TODO: Implement pause");
+        if (!this.filterLogic.pause(id)) {
+            LOG.warn("Could not pause subscription {}", id);
+        }
+    }
+
+    /**
+     * pauses a newly registered subscription if it is disabled
+     */
+    private void applyStatus(Subscription subscription) {
+        if (subscription instanceof SubscriptionImpl
+                && Boolean.FALSE.equals(((SubscriptionImpl) subscription).getEnabled())) {
+            pause(subscription.getId());
+        }
+    }
+
+    private void scheduleTermination(Subscription subscription) {
+        if (subscription.getEndOfLife() != null) {
+            SubscriptionTerminatable term = new SubscriptionTerminatable(subscription);
+            terminator.scheduleTermination(term);
+            subscriptionToTerminatableMap.put(subscription.getId(), term);
+        }
     }
 
     private void changeEndOfLife(Subscription subscription, DateTime eol) {
-        if (subscriptionToTerminatableMap.containsKey(subscription)) {
+        cancelTermination(subscription.getId());
+
+        SubscriptionTerminatable term = new SubscriptionTerminatable(subscription);
+        terminator.scheduleTermination(term);
+        subscriptionToTerminatableMap.put(subscription.getId(), term);
+    }
+
+    private void cancelTermination(String id) {
+        SubscriptionTerminatable term = subscriptionToTerminatableMap.remove(id);
+        if (term != null) {
             try {
-                terminator.cancelTermination(subscriptionToTerminatableMap.get(subscription));
+                terminator.cancelTermination(term);
             } catch (UnknownTerminatableException ex) {
                 LOG.warn("Could not cancel termination", ex);
             }
         }
-
-        SubscriptionTerminatable term = new SubscriptionTerminatable(subscription);
-        terminator.scheduleTermination(term);
-        subscriptionToTerminatableMap.put(subscription, term);
     }
 
     private void remove(String id) throws InvalidSubscriptionException {
         this.filterLogic.remove(id);
+        cancelTermination(id);
+
+        /*
+        * release the retained events, also for expired subscriptions
+        */
+        if (this.eventLogStore != null) {
+            this.eventLogStore.removeSubscription(id);
+        }
+        if (this.matchStatistics != null) {
+            this.matchStatistics.removeSubscription(id);
+        }
+
         try {
             this.dao.remove(id);
         } catch (UnknownSubscriptionException ex) {
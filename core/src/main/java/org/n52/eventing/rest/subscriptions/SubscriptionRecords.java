@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTime;
+import org.n52.eventing.rest.deliverymethods.DeliveryMethodInstance;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.parameters.ParameterInstance;
+import org.n52.eventing.rest.templates.TemplateInstance;
+import org.n52.eventing.rest.users.User;
+import org.n52.eventing.rest.users.UserImpl;
+
+/**
+ * The binary record format of a subscription, used by the
+ * {@link SubscriptionJournal}. A record is laid out as:
+ *
+ * <pre>
+ * str   id, label, description, publication id
+ * long  created, modified, end of life in epoch millis
+ * byte  enabled, expired
+ * int   event log capacity
+ * byte  1 if a user follows: str id, first name, last name, email, byte admin
+ * byte  1 if a template instance follows: str id, parameters
+ * int   number of delivery methods, each: str id, parameters
+ * str   details as JSON
+ * </pre>
+ *
+ * Changes of the layout require a new {@link SubscriptionJournal} version.
+ *
+ * Strings are written as their UTF-8 length (-1 for null) and bytes, absent
+ * times as {@link Long#MIN_VALUE}, absent booleans as -1 and an absent
+ * capacity as -1. Parameters are written as their count (-1 for null) and,
+ * for every parameter, its key, name, data type and a tagged value. Values
+ * other than strings, numbers and booleans are written as JSON.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+final class SubscriptionRecords {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte INT_VALUE = 2;
+    private static final byte LONG_VALUE = 3;
+    private static final byte DOUBLE_VALUE = 4;
+    private static final byte BOOLEAN_VALUE = 5;
+    private static final byte JSON_VALUE = 6;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SubscriptionRecords() {
+    }
+
+    static void write(DataOutputStream out, SubscriptionImpl s) throws IOException {
+        writeString(out, s.getId());
+        writeString(out, s.getLabel());
+        writeString(out, s.getDescription());
+        writeString(out, s.getPublicationId());
+        writeTime(out, s.getCreated());
+        writeTime(out, s.getModified());
+        writeTime(out, s.getEndOfLife());
+        writeBoolean(out, s.getEnabled());
+        writeBoolean(out, s.getExpired());
+        out.writeInt(s.getEventLogCapacity() != null ? s.getEventLogCapacity() : -1);
+
+        User user = s.getUser();
+        out.writeByte(user != null ? 1 : 0);
+        if (user != null) {
+            writeString(out, user.getId());
+            UserImpl details = user instanceof UserImpl ? (UserImpl) user : null;
+            writeString(out, details != null ? details.getFirstName() : null);
+            writeString(out, details != null ? details.getLastName() : null);
+            writeString(out, details != null ? details.getEmail() : null);
+            out.writeBoolean(user.isAdmin());
+        }
+
+        TemplateInstance template = s.getNotificationInstance();
+        out.writeByte(template != null ? 1 : 0);
+        if (template != null) {
+            writeString(out, template.getId());
+            writeParameters(out, template.getParameters());
+        }
+
+        List<DeliveryMethodInstance> deliveryMethods = s.getDeliveryMethods();
+        out.writeInt(deliveryMethods != null ? deliveryMethods.size() : 0);
+        if (deliveryMethods != null) {
+            for (DeliveryMethodInstance dm : deliveryMethods) {
+                writeString(out, dm.getId());
+                writeParameters(out, dm.getParameters());
+            }
+        }
+
+        writeString(out, s.getDetails() != null ? MAPPER.writeValueAsString(s.getDetails()) : null);
+    }
+
+    static SubscriptionImpl read(ByteBuffer in) throws IOException {
+        SubscriptionImpl s = new SubscriptionImpl(readString(in), readString(in), readString(in));
+        s.setPublicationId(readString(in));
+        s.setCreated(readTime(in));
+        s.setModified(readTime(in));
+        s.setEndOfLife(readTime(in));
+        s.setEnabled(readBoolean(in));
+        s.setExpired(readBoolean(in));
+        int capacity = in.getInt();
+        s.setEventLogCapacity(capacity >= 0 ? capacity : null);
+
+        if (in.get() == 1) {
+            UserImpl user = new UserImpl(readString(in), readString(in), readString(in), readString(in));
+            user.setAdmin(in.get() == 1);
+            s.setUser(user);
+        }
+
+        if (in.get() == 1) {
+            String id = readString(in);
+            s.setTemplate(new TemplateInstance(id, readParameters(in)));
+        }
+
+        int deliveryMethods = in.getInt();
+        List<DeliveryMethodInstance> dms = new ArrayList<>(Math.max(deliveryMethods, 0));
+        for (int i = 0; i < deliveryMethods; i++) {
+            String id = readString(in);
+            dms.add(new DeliveryMethodInstance(id, readParameters(in)));
+        }
+        s.setDeliveryMethods(dms);
+
+        String details = readString(in);
+        s.setDetails(details != null ? MAPPER.readValue(details, Object.class) : null);
+
+        return s;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        }
+        else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static void writeTime(DataOutputStream out, DateTime value) throws IOException {
+        out.writeLong(value != null ? value.getMillis() : NO_TIME);
+    }
+
+    static DateTime readTime(ByteBuffer in) {
+        long millis = in.getLong();
+        return millis != NO_TIME ? new DateTime(millis) : null;
+    }
+
+    static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : (value ? 1 : 0));
+    }
+
+    static Boolean readBoolean(ByteBuffer in) {
+        byte value = in.get();
+        return value < 0 ? null : value == 1;
+    }
+
+    private static void writeParameters(DataOutputStream out, Map<String, ParameterInstance> parameters)
+            throws IOException {
+        if (parameters == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(parameters.size());
+        for (Map.Entry<String, ParameterInstance> e : parameters.entrySet()) {
+            ParameterInstance p = e.getValue();
+            writeString(out, e.getKey());
+            writeString(out, p != null ? p.getName() : null);
+            writeString(out, p != null ? p.getDataType() : null);
+            writeValue(out, p != null ? p.getValue() : null);
+        }
+    }
+
+    private static Map<String, ParameterInstance> readParameters(ByteBuffer in) throws IOException {
+        int count = in.getInt();
+        if (count < 0) {
+            return null;
+        }
+
+        Map<String, ParameterInstance> result = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            String name = readString(in);
+            String dataType = readString(in);
+            result.put(key, new ParameterInstance(name, readValue(in), dataType));
+        }
+        return result;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        }
+        else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(INT_VALUE);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeByte((Boolean) value ? 1 : 0);
+        }
+        else {
+            out.writeByte(JSON_VALUE);
+            writeString(out, MAPPER.writeValueAsString(value));
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case STRING_VALUE:
+                return readString(in);
+            case INT_VALUE:
+                return in.getInt();
+            case LONG_VALUE:
+                return in.getLong();
+            case DOUBLE_VALUE:
+                return in.getDouble();
+            case BOOLEAN_VALUE:
+                return in.get() == 1;
+            case JSON_VALUE:
+                return MAPPER.readValue(readString(in), Object.class);
+            default:
+                throw new IOException("Unknown parameter value type: " + type);
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -27,6 +27,8 @@
  */
 package org.n52.eventing.rest.subscriptions;
 
+import java.util.Map;
+import java.util.OptionalLong;
 import org.n52.eventing.rest.model.Subscription;
 import org.joda.time.DateTime;
 import org.n52.eventing.rest.Pagination;
@@ -46,10 +48,26 @@ public interface SubscriptionsService {
 
     void addSubscription(String subId, Subscription subscription);
 
+    /**
+     * @param subscriptions the subscriptions by id, in order
+     */
+    default void addSubscriptions(Map<String, Subscription> subscriptions) {
+        subscriptions.forEach(this::addSubscription);
+    }
+
     Subscription updateEndOfLife(String id, DateTime eol) throws UnknownSubscriptionException;
 
     Subscription updateStatus(String id, boolean enabled) throws UnknownSubscriptionException;
 
     void remove(String id) throws UnknownSubscriptionException;
 
+    /**
+     * @param id the subscription id
+     * @return the version of the subscription, changed by every update of it.
+     * Empty if the subscription is unknown or versions are not supported.
+     */
+    default OptionalLong getSubscriptionVersion(String id) {
+        return OptionalLong.empty();
+    }
+
 }
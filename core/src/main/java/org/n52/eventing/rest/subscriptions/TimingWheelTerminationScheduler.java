@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.joda.time.DateTime;
+import org.n52.subverse.termination.Terminatable;
+import org.n52.subverse.termination.TerminationScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TerminationScheduler} based on a hierarchical timing wheel.
+ * Scheduling and cancelling a termination take constant time, regardless of
+ * the number of scheduled terminations.
+ * <p>
+ * The innermost wheel has a bucket per tick. Terminations beyond its range go
+ * to an overflow wheel whose ticks span the whole inner wheel, created on
+ * demand. Only buckets holding terminations are queued for their time, so
+ * the timer thread sleeps until the next bucket is due instead of ticking.
+ * Once a bucket of an outer wheel is due, its terminations move to the inner
+ * wheels. All terminations due at a time are handed to a separate thread as
+ * one batch.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class TimingWheelTerminationScheduler implements TerminationScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheelTerminationScheduler.class.getName());
+
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final DelayQueue<Bucket> queue = new DelayQueue<>();
+    private final Map<Terminatable, Entry> entries = new ConcurrentHashMap<>();
+    private final Wheel wheel;
+    private final Thread timer;
+    private final ExecutorService terminationExecutor;
+    private volatile boolean running = true;
+
+    public TimingWheelTerminationScheduler() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param tickMillis the resolution of the scheduler
+     * @param wheelSize the number of buckets per wheel
+     */
+    public TimingWheelTerminationScheduler(long tickMillis, int wheelSize) {
+        this.wheel = new Wheel(Math.max(1, tickMillis), Math.max(2, wheelSize), System.currentTimeMillis());
+        this.terminationExecutor = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "subscription-termination");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer = new Thread(this::run, "subscription-termination-timer");
+        this.timer.setDaemon(true);
+        this.timer.start();
+    }
+
+    @Override
+    public void scheduleTermination(Terminatable t) {
+        DateTime endOfLife = t.getEndOfLife();
+        if (endOfLife == null) {
+            return;
+        }
+
+        Entry entry = new Entry(t, endOfLife.getMillis());
+        boolean scheduled;
+        synchronized (this) {
+            Entry previous = this.entries.put(t, entry);
+            if (previous != null) {
+                previous.cancel();
+            }
+            scheduled = this.wheel.add(entry);
+            if (!scheduled) {
+                this.entries.remove(t, entry);
+            }
+        }
+
+        /*
+        * already due
+        */
+        if (!scheduled) {
+            List<Terminatable> due = new ArrayList<>(1);
+            due.add(t);
+            submit(due);
+        }
+    }
+
+    @Override
+    public void cancelTermination(Terminatable t) {
+        synchronized (this) {
+            Entry entry = this.entries.remove(t);
+            if (entry != null) {
+                entry.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        this.running = false;
+        this.timer.interrupt();
+        this.terminationExecutor.shutdownNow();
+    }
+
+    /**
+     * @return the number of scheduled terminations
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    private void run() {
+        while (this.running) {
+            Bucket bucket;
+            try {
+                bucket = this.queue.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+
+            List<Terminatable> due = new ArrayList<>();
+            synchronized (this) {
+                while (bucket != null) {
+                    this.wheel.advance(bucket.getExpiration());
+                    bucket.flush((Entry e) -> {
+                        if (!this.wheel.add(e) && !e.cancelled && this.entries.remove(e.terminatable, e)) {
+                            due.add(e.terminatable);
+                        }
+                    });
+                    bucket = this.queue.poll();
+                }
+            }
+
+            if (!due.isEmpty()) {
+                submit(due);
+            }
+        }
+    }
+
+    private void submit(List<Terminatable> due) {
+        if (!this.running) {
+            return;
+        }
+
+        this.terminationExecutor.execute(() -> {
+            LOG.debug("Terminating {} subscriptions", due.size());
+            for (Terminatable t : due) {
+                try {
+                    t.terminate();
+                } catch (RuntimeException ex) {
+                    LOG.warn("Could not terminate subscription", ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * one level of the timing wheel. Accessed under the lock of the scheduler.
+     */
+    private final class Wheel {
+
+        private final long tick;
+        private final int size;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private Wheel overflow;
+
+        private Wheel(long tick, int size, long startTime) {
+            this.tick = tick;
+            this.size = size;
+            this.interval = tick * size;
+            this.buckets = new Bucket[size];
+            for (int i = 0; i < size; i++) {
+                this.buckets[i] = new Bucket();
+            }
+            this.currentTime = startTime - (startTime % tick);
+        }
+
+        /**
+         * @return false if the entry is cancelled or already due
+         */
+        private boolean add(Entry entry) {
+            if (entry.cancelled) {
+                return false;
+            }
+            if (entry.expiration < this.currentTime + this.tick) {
+                return false;
+            }
+            if (entry.expiration < this.currentTime + this.interval) {
+                long virtualId = entry.expiration / this.tick;
+                Bucket bucket = this.buckets[(int) (virtualId % this.size)];
+                bucket.add(entry);
+                if (bucket.setExpiration(virtualId * this.tick)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+
+            if (this.overflow == null) {
+                this.overflow = new Wheel(this.interval, this.size, this.currentTime);
+            }
+            return this.overflow.add(entry);
+        }
+
+        private void advance(long time) {
+            if (time >= this.currentTime + this.tick) {
+                this.currentTime = time - (time % this.tick);
+                if (this.overflow != null) {
+                    this.overflow.advance(this.currentTime);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * the entries of one tick, as a doubly linked list for constant time
+     * removal
+     */
+    private static final class Bucket implements Delayed {
+
+        private final Entry root = new Entry(null, -1);
+        private volatile long expiration = -1;
+
+        private Bucket() {
+            root.next = root;
+            root.previous = root;
+        }
+
+        private synchronized void add(Entry entry) {
+            entry.bucket = this;
+            entry.previous = root.previous;
+            entry.next = root;
+            root.previous.next = entry;
+            root.previous = entry;
+        }
+
+        private synchronized void remove(Entry entry) {
+            if (entry.bucket == this) {
+                entry.previous.next = entry.next;
+                entry.next.previous = entry.previous;
+                entry.next = null;
+                entry.previous = null;
+                entry.bucket = null;
+            }
+        }
+
+        /**
+         * removes all entries and passes them on
+         */
+        private synchronized void flush(Consumer<Entry> target) {
+            Entry entry = root.next;
+            List<Entry> flushed = new ArrayList<>();
+            while (entry != root) {
+                Entry next = entry.next;
+                remove(entry);
+                flushed.add(entry);
+                entry = next;
+            }
+            this.expiration = -1;
+            flushed.forEach(target);
+        }
+
+        /**
+         * @return true if the expiration changed, i.e. the bucket has to be
+         * queued for its new time
+         */
+        private boolean setExpiration(long time) {
+            if (this.expiration != time) {
+                this.expiration = time;
+                return true;
+            }
+            return false;
+        }
+
+        private long getExpiration() {
+            return this.expiration;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(this.expiration - System.currentTimeMillis(), 0),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(this.expiration, ((Bucket) o).expiration);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Terminatable terminatable;
+        private final long expiration;
+        private volatile boolean cancelled;
+        private Bucket bucket;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(Terminatable terminatable, long expiration) {
+            this.terminatable = terminatable;
+            this.expiration = expiration;
+        }
+
+        private void cancel() {
+            this.cancelled = true;
+            Bucket current = this.bucket;
+            if (current != null) {
+                current.remove(this);
+            }
+        }
+
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -61,30 +61,63 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.n52.eventing.rest.Configuration;
 import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.VersionCounter;
+import org.n52.eventing.rest.Versioned;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
+ * Keeps the templates of the JSON files in the template directory in memory.
+ * The directory is watched for changes, so that templates are added, updated
+ * and removed along with their files without a restart. Lookups are plain
+ * map reads.
+ * <p>
+ * The directory is resolved from the classpath first, then from the file
+ * system.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class ConfigurationTemplatesDao implements TemplatesDao, InitializingBean {
+public class ConfigurationTemplatesDao implements TemplatesDao, Versioned, InitializingBean, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConfigurationTemplatesDao.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final Map<String, TemplateDefinition> templates = new ConcurrentHashMap<>();
+
+    /*
+    * the template id per file and the file per template id, modified by the
+    * loading thread or the watcher only
+    */
+    private final Map<Path, String> idsByFile = new ConcurrentHashMap<>();
+    private final Map<String, Path> filesById = new ConcurrentHashMap<>();
+
+    private final VersionCounter version = new VersionCounter();
     private final Configuration config;
+    private Path baseDirectory;
+    private WatchService watchService;
+    private Thread watcher;
 
     public ConfigurationTemplatesDao(Configuration config) {
         this.config = config;
@@ -97,8 +130,9 @@ public class ConfigurationTemplatesDao implements TemplatesDao, InitializingBean
 
     @Override
     public TemplateDefinition getTemplate(String id) throws UnknownTemplateException {
-        if (hasTemplate(id)) {
-            return templates.get(id);
+        TemplateDefinition result = templates.get(id);
+        if (result != null) {
+            return result;
         }
 
         throw new UnknownTemplateException("not there: "+ id);
@@ -110,6 +144,16 @@ public class ConfigurationTemplatesDao implements TemplatesDao, InitializingBean
         return new QueryResult(result, result.size());
     }
 
+    @Override
+    public long getVersion() {
+        return version.getVersion();
+    }
+
+    @Override
+    public long getLastModified() {
+        return version.getLastModified();
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         LOG.info("Templates DAO, using configuration: {}", config);
@@ -117,41 +161,171 @@ public class ConfigurationTemplatesDao implements TemplatesDao, InitializingBean
             loadTemplates(config);
         } catch (IOException ex) {
             LOG.warn("Could not load templates", ex);
+            return;
+        }
+
+        boolean watch = config.getParameterAsBoolean("templates.watch").orElse(true);
+        if (watch && baseDirectory != null) {
+            startWatching();
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.watchService != null) {
+            this.watchService.close();
+        }
+        if (this.watcher != null) {
+            this.watcher.join(1000);
         }
     }
 
     protected void loadTemplates(Configuration config) throws IOException {
         String baseDir = config.getParameter("templateDirectory").orElse("/templates");
         try  {
-            URL res = getClass().getResource(baseDir);
-            Path basePath = Paths.get(res.toURI());
-            Files.find(basePath, 1, (Path t, BasicFileAttributes u) -> {
-                return t.toFile().toString().endsWith(".json");
-            }).forEach(p -> {
+            this.baseDirectory = resolveDirectory(baseDir);
+        }
+        catch (URISyntaxException e) {
+            LOG.warn("Could not resolve templates dir", e);
+            return;
+        }
+
+        if (this.baseDirectory == null) {
+            LOG.warn("Templates dir not found: {}", baseDir);
+            return;
+        }
+
+        try (Stream<Path> files = Files.find(this.baseDirectory, 1, (Path t, BasicFileAttributes u) -> {
+                return isTemplateFile(t);
+            })) {
+            files.sorted().forEach(this::update);
+        }
+    }
+
+    private Path resolveDirectory(String baseDir) throws URISyntaxException {
+        URL res = getClass().getResource(baseDir);
+        if (res != null) {
+            return Paths.get(res.toURI());
+        }
+
+        Path path = Paths.get(baseDir);
+        return Files.isDirectory(path) ? path : null;
+    }
+
+    private static boolean isTemplateFile(Path p) {
+        return p.getFileName().toString().endsWith(".json");
+    }
+
+    /**
+     * (re-)loads the template of a file
+     */
+    private synchronized void update(Path p) {
+        TemplateDefinitionImpl t;
+        try {
+            t = loadTemplate(p);
+        } catch (IOException e) {
+            /*
+            * possibly written partially, the next change event retries
+            */
+            LOG.warn("Could not template instance {}", p, e);
+            return;
+        }
+
+        Path owner = filesById.get(t.getId());
+        if (owner != null && !owner.equals(p)) {
+            LOG.warn("Template with id '{}' already registered!", t.getId());
+            return;
+        }
+
+        String previousId = idsByFile.put(p, t.getId());
+        if (previousId != null && !previousId.equals(t.getId())) {
+            templates.remove(previousId);
+            filesById.remove(previousId);
+        }
+
+        filesById.put(t.getId(), p);
+        templates.put(t.getId(), t);
+        version.increment();
+        LOG.info("{} template '{}'", owner == null ? "Added" : "Updated", t.getId());
+    }
+
+    private synchronized void remove(Path p) {
+        String id = idsByFile.remove(p);
+        if (id != null) {
+            filesById.remove(id);
+            templates.remove(id);
+            version.increment();
+            LOG.info("Removed template '{}'", id);
+        }
+    }
+
+    /**
+     * re-reads the whole directory, if events have been lost
+     */
+    private synchronized void rescan() throws IOException {
+        Set<Path> present;
+        try (Stream<Path> files = Files.list(this.baseDirectory)) {
+            present = files.filter(ConfigurationTemplatesDao::isTemplateFile).collect(Collectors.toSet());
+        }
+
+        new HashSet<>(idsByFile.keySet()).stream()
+                .filter(p -> !present.contains(p))
+                .forEach(this::remove);
+        present.stream().sorted().forEach(this::update);
+    }
+
+    private void startWatching() throws IOException {
+        this.watchService = this.baseDirectory.getFileSystem().newWatchService();
+        this.baseDirectory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        this.watcher = new Thread(this::watch, "template-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+        LOG.info("Watching templates dir {}", this.baseDirectory);
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
                 try {
-                    TemplateDefinition t = loadTemplate(p);
-                    if (templates.containsKey(t.getId())) {
-                        LOG.warn("Template with id '{}' already registered!", t.getId());
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan();
+                        continue;
+                    }
+
+                    Path p = this.baseDirectory.resolve((Path) event.context());
+                    if (!isTemplateFile(p)) {
+                        continue;
+                    }
+
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE || !Files.exists(p)) {
+                        remove(p);
                     }
                     else {
-                        templates.put(t.getId(), t);
-                        LOG.info("Added template '{}'", t.getId());
+                        update(p);
                     }
-                } catch (IOException e) {
-                    LOG.warn("Could not template instance {}", p, e);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not process change of templates dir", e);
                 }
-            });
-        }
-        catch (URISyntaxException e) {
-            LOG.warn("Could not resolve templates dir", e);
-        }
+            }
 
+            if (!key.reset()) {
+                LOG.warn("Templates dir not accessible anymore: {}", this.baseDirectory);
+                return;
+            }
+        }
     }
 
     protected TemplateDefinitionImpl loadTemplate(Path p) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        TemplateDefinitionImpl t = mapper.readValue(p.toFile(), TemplateDefinitionImpl.class);
-        return t;
+        return MAPPER.readValue(p.toFile(), TemplateDefinitionImpl.class);
     }
 
     @Override
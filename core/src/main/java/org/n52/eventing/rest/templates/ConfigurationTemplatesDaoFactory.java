@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -27,35 +27,41 @@
  */
 package org.n52.eventing.rest.templates;
 
-import java.io.IOException;
 import org.n52.eventing.rest.Configuration;
 import org.n52.eventing.rest.factory.TemplatesDaoFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
+ * Provides a single {@link ConfigurationTemplatesDao}, which loads the
+ * templates once and keeps them up to date.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class ConfigurationTemplatesDaoFactory implements TemplatesDaoFactory {
-
-    private static final Logger LOG = LoggerFactory.getLogger(ConfigurationTemplatesDaoFactory.class);
+public class ConfigurationTemplatesDaoFactory implements TemplatesDaoFactory, InitializingBean, DisposableBean {
 
     @Autowired
     private Configuration config;
 
+    private ConfigurationTemplatesDao dao;
+
     @Override
-    public TemplatesDao newDao() {
-        ConfigurationTemplatesDao result = new ConfigurationTemplatesDao(config);
-        try {
-            result.loadTemplates(config);
-            return result;
-        } catch (IOException ex) {
-            LOG.warn("Could not instantiate dao: "+ex.getMessage());
-            LOG.debug(ex.getMessage(), ex);
-            throw new RuntimeException(ex);
+    public void afterPropertiesSet() throws Exception {
+        this.dao = new ConfigurationTemplatesDao(config);
+        this.dao.afterPropertiesSet();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.dao != null) {
+            this.dao.destroy();
         }
     }
 
+    @Override
+    public TemplatesDao newDao() {
+        return this.dao;
+    }
+
 }
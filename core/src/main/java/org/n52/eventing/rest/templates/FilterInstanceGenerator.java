@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -28,16 +28,42 @@
 package org.n52.eventing.rest.templates;
 
 import org.n52.eventing.rest.model.impl.TemplateDefinitionImpl;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.n52.eventing.rest.parameters.ParameterInstance;
 
 /**
+ * Instantiates the content of templates by replacing <code>${name}</code>
+ * placeholders with parameter values. A template is compiled once into
+ * literal chunks and parameter slots, cached per template id, so that an
+ * instance is built in a single pass.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
 public class FilterInstanceGenerator {
 
+    private static final String SLOT_START = "${";
+    private static final String SLOT_END = "}";
+
+    private final Map<String, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+    private final boolean escapeValues;
+
+    public FilterInstanceGenerator() {
+        this(false);
+    }
+
+    /**
+     * @param escapeValues if parameter values are to be XML-escaped
+     */
+    public FilterInstanceGenerator(boolean escapeValues) {
+        this.escapeValues = escapeValues;
+    }
+
     public String generateFilterInstance(TemplateDefinitionImpl t, Collection<ParameterInstance> values) {
         Object o = t.getDefinition().getContent();
 
@@ -49,15 +75,112 @@ public class FilterInstanceGenerator {
             throw new IllegalArgumentException("content must be string for default impl of FilterLogic");
         }
 
-        if (content.contains("&lt;")) {
-            content = StringEscapeUtils.unescapeXml(content);
+        Map<String, String> parameters = new HashMap<>(values.size() * 2);
+        for (ParameterInstance param : values) {
+            parameters.putIfAbsent(param.getName(), param.getValue().toString());
+        }
+
+        return compile(t.getId(), content).instantiate(parameters, escapeValues);
+    }
+
+    /**
+     * @return the compiled template, from the cache if its content did not
+     * change
+     */
+    private CompiledTemplate compile(String id, String content) {
+        if (id == null) {
+            return CompiledTemplate.compile(content);
         }
 
-        for (ParameterInstance param : values) {
-            content = content.replace(String.format("${%s}", param.getName()), param.getValue().toString());
+        CompiledTemplate result = compiled.get(id);
+        if (result == null || !result.matches(content)) {
+            result = CompiledTemplate.compile(content);
+            compiled.put(id, result);
+        }
+        return result;
+    }
+
+    /**
+     * the content of a template as literal chunks with parameter slots in
+     * between: <code>literals[0] slots[0] literals[1] ... literals[n]</code>
+     */
+    static final class CompiledTemplate {
+
+        private final String source;
+        private final String[] literals;
+        private final String[] slots;
+        private final int literalLength;
+
+        private CompiledTemplate(String source, String[] literals, String[] slots) {
+            this.source = source;
+            this.literals = literals;
+            this.slots = slots;
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+
+        static CompiledTemplate compile(String source) {
+            String content = source;
+            if (content.contains("&lt;")) {
+                content = StringEscapeUtils.unescapeXml(content);
+            }
+
+            List<String> literals = new ArrayList<>();
+            List<String> slots = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int start = content.indexOf(SLOT_START, position);
+                int end = start < 0 ? -1 : content.indexOf(SLOT_END, start + SLOT_START.length());
+                if (end < 0) {
+                    literals.add(content.substring(position));
+                    break;
+                }
+
+                literals.add(content.substring(position, start));
+                slots.add(content.substring(start + SLOT_START.length(), end));
+                position = end + SLOT_END.length();
+            }
+
+            return new CompiledTemplate(source, literals.toArray(new String[literals.size()]),
+                    slots.toArray(new String[slots.size()]));
+        }
+
+        private boolean matches(String content) {
+            return this.source == content || this.source.equals(content);
+        }
+
+        /**
+         * @param parameters the values by parameter name. Slots without a
+         * value are kept as placeholders.
+         * @param escape if the values are to be XML-escaped
+         * @return the instance
+         */
+        String instantiate(Map<String, String> parameters, boolean escape) {
+            String[] values = new String[slots.length];
+            int length = literalLength;
+            for (int i = 0; i < slots.length; i++) {
+                String value = parameters.get(slots[i]);
+                if (value == null) {
+                    value = SLOT_START + slots[i] + SLOT_END;
+                }
+                else if (escape) {
+                    value = StringEscapeUtils.escapeXml10(value);
+                }
+                values[i] = value;
+                length += value.length();
+            }
+
+            StringBuilder result = new StringBuilder(length);
+            result.append(literals[0]);
+            for (int i = 0; i < slots.length; i++) {
+                result.append(values[i]).append(literals[i + 1]);
+            }
+            return result.toString();
         }
 
-        return content;
     }
 
 }
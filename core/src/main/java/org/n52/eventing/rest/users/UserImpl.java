@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -84,5 +84,9 @@ public class UserImpl implements User {
         return this.admin;
     }
 
+    public void setAdmin(boolean admin) {
+        this.admin = admin;
+    }
+
 
 }
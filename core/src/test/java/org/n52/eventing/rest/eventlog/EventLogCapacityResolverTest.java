@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.Optional;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.subscriptions.InvalidSubscriptionException;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogCapacityResolverTest {
+
+    @Mock
+    private Configuration config;
+
+    @InjectMocks
+    private EventLogCapacityResolver resolver;
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        mocks = MockitoAnnotations.openMocks(this);
+        Mockito.when(config.getParameterAsInt(Mockito.anyString())).thenReturn(Optional.empty());
+        Mockito.when(config.getParameterAsInt("eventLog.capacity.maximum")).thenReturn(Optional.of(100));
+        resolver.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    public void testResolveKeepsSubscription() throws Exception {
+        SubscriptionImpl defaulted = createSubscription("sub-1", null);
+        resolver.validate(defaulted);
+        MatcherAssert.assertThat(resolver.resolve(defaulted), CoreMatchers.is(EventLogCapacityResolver.DEFAULT_CAPACITY));
+        MatcherAssert.assertThat(defaulted.getEventLogCapacity(), CoreMatchers.nullValue());
+
+        Mockito.when(config.getParameterAsInt("eventLog.capacity.publication.pub-1")).thenReturn(Optional.of(30));
+        MatcherAssert.assertThat(resolver.resolve(defaulted), CoreMatchers.is(30));
+
+        SubscriptionImpl requested = createSubscription("sub-2", 80);
+        resolver.validate(requested);
+        MatcherAssert.assertThat(resolver.resolve(requested), CoreMatchers.is(80));
+        MatcherAssert.assertThat(requested.getEventLogCapacity(), CoreMatchers.is(80));
+    }
+
+    @Test
+    public void testRestartWithLowerMaximum() throws Exception {
+        SubscriptionImpl defaulted = createSubscription("sub-1", null);
+        SubscriptionImpl requested = createSubscription("sub-2", 80);
+        resolver.validate(defaulted);
+        resolver.validate(requested);
+
+        /*
+        * persisted subscriptions are resolved again, only new ones are
+        * validated against the lowered maximum
+        */
+        Mockito.when(config.getParameterAsInt("eventLog.capacity.maximum")).thenReturn(Optional.of(10));
+        resolver.afterPropertiesSet();
+
+        MatcherAssert.assertThat(resolver.resolve(defaulted), CoreMatchers.is(10));
+        MatcherAssert.assertThat(resolver.resolve(requested), CoreMatchers.is(10));
+        MatcherAssert.assertThat(requested.getEventLogCapacity(), CoreMatchers.is(80));
+        Assertions.assertThrows(InvalidSubscriptionException.class,
+                () -> resolver.validate(createSubscription("sub-3", 80)));
+    }
+
+    private static SubscriptionImpl createSubscription(String id, Integer capacity) {
+        SubscriptionImpl sub = new SubscriptionImpl(id, null, null);
+        sub.setPublicationId("pub-1");
+        sub.setEventLogCapacity(capacity);
+        return sub;
+    }
+
+}
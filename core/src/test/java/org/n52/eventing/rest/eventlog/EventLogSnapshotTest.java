@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import com.google.common.io.ByteStreams;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.eventing.rest.PaginationFactory;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestore() throws Exception {
+        Path file = directory.resolve("events.snapshot");
+        RingBufferEventLogStore store = new RingBufferEventLogStore(64 * 1024, 0);
+        store.setSnapshot(new EventLogSnapshot(file, 0));
+        store.afterPropertiesSet();
+
+        SubscriptionImpl subA = new SubscriptionImpl("sub-a", null, null);
+        SubscriptionImpl subB = new SubscriptionImpl("sub-b", null, null);
+        DateTime base = new DateTime();
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl target = i % 2 == 0 ? subA : subB;
+            byte[] content = ("event " + i).getBytes(StandardCharsets.UTF_8);
+            store.addEvent(target, new EventHolderImpl(Integer.toString(i), base.plusMinutes(i), target,
+                    "label " + i, Optional.of(new ByteBufferStreamable(ByteBuffer.wrap(content), "text/plain"))),
+                    i % 2 == 0 ? 3 : 20);
+        }
+        store.destroy();
+
+        /*
+        * the in-memory store restores what the ring buffer store has written
+        */
+        EventLogStoreImpl restored = new EventLogStoreImpl();
+        restored.setSnapshot(new EventLogSnapshot(file, 0));
+        restored.afterPropertiesSet();
+
+        List<String> ids = restored.getAllEvents(new PaginationFactory().create(0, 20)).getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("9", "8", "7", "6", "5", "4", "3", "1")));
+
+        EventHolderImpl event = (EventHolderImpl) restored.getSingleEvent("7", null).get();
+        MatcherAssert.assertThat(event.getLabel(), CoreMatchers.is("label 7"));
+        MatcherAssert.assertThat(event.getTimestamp().getMillis(), CoreMatchers.is(base.plusMinutes(7).getMillis()));
+        Streamable content = event.streamableObject().get();
+        try (InputStream is = content.asStream()) {
+            MatcherAssert.assertThat(new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8),
+                    CoreMatchers.is("event 7"));
+        }
+
+        /*
+        * the capacity of each subscription is restored as well
+        */
+        restored.addEvent(subA, new EventHolderImpl("10", base.plusMinutes(10), subA, null, Optional.empty()), 20);
+        MatcherAssert.assertThat(restored.getEventsForSubscription(subA).getTotalHits(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void testRestoreWithChangedCapacity() throws Exception {
+        Path file = directory.resolve("events.snapshot");
+        RingBufferEventLogStore store = new RingBufferEventLogStore(64 * 1024, 0);
+        store.setSnapshot(new EventLogSnapshot(file, 0));
+        store.afterPropertiesSet();
+
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        DateTime base = new DateTime();
+        for (int i = 0; i < 5; i++) {
+            store.addEvent(sub, createEvent(sub, i, base), 5);
+        }
+        store.destroy();
+
+        RingBufferEventLogStore restored = new RingBufferEventLogStore(64 * 1024, 0);
+        restored.setSnapshot(new EventLogSnapshot(file, 0));
+        restored.afterPropertiesSet();
+        MatcherAssert.assertThat(restored.getEventCount(), CoreMatchers.is(5L));
+
+        /*
+        * the capacity has been lowered since the snapshot was written
+        */
+        restored.addEvent(sub, createEvent(sub, 5, base), 2);
+
+        List<String> ids = restored.getEventsForSubscription(sub, new PaginationFactory().create(0, 10))
+                .getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("5", "4")));
+        MatcherAssert.assertThat(restored.getEventCount(), CoreMatchers.is(2L));
+        MatcherAssert.assertThat(restored.getSingleEvent("3", null), CoreMatchers.is(Optional.empty()));
+        MatcherAssert.assertThat(restored.getUsage().get("sub-1").getOffHeapBytes(), CoreMatchers.is(14L));
+
+        /*
+        * and raised again
+        */
+        for (int i = 6; i < 10; i++) {
+            restored.addEvent(sub, createEvent(sub, i, base), 4);
+        }
+        MatcherAssert.assertThat(restored.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(4L));
+        MatcherAssert.assertThat(restored.getEventCount(), CoreMatchers.is(4L));
+        restored.destroy();
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws Exception {
+        Path file = directory.resolve("events.snapshot");
+        EventLogStoreImpl store = new EventLogStoreImpl();
+        store.setSnapshot(new EventLogSnapshot(file, 0));
+        store.afterPropertiesSet();
+
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        for (int i = 0; i < 10; i++) {
+            store.addEvent(sub, new EventHolderImpl(Integer.toString(i), new DateTime().plusSeconds(i), sub, null,
+                    Optional.empty()), 20);
+        }
+        store.destroy();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 20);
+        }
+
+        EventLogStoreImpl restored = new EventLogStoreImpl();
+        restored.setSnapshot(new EventLogSnapshot(file, 0));
+        restored.afterPropertiesSet();
+
+        MatcherAssert.assertThat(restored.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(9L));
+    }
+
+    private EventHolderImpl createEvent(SubscriptionImpl sub, int i, DateTime base) {
+        byte[] content = ("event " + i).getBytes(StandardCharsets.UTF_8);
+        return new EventHolderImpl(Integer.toString(i), base.plusMinutes(i), sub, null,
+                Optional.of(new ByteBufferStreamable(ByteBuffer.wrap(content), "text/plain")));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventLogWriterTest {
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        RingBufferEventLogStore store = new RingBufferEventLogStore(0, 0);
+        EventLogWriter writer = new EventLogWriter(store, null, 100000, 64);
+        writer.start();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            SubscriptionImpl sub = new SubscriptionImpl("sub-" + p, null, null);
+            EventLogEndpoint endpoint = new EventLogEndpoint(1000, sub, store, null, writer);
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    endpoint.deliver(Optional.empty(), false);
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread t : producers) {
+            t.join();
+        }
+        writer.destroy();
+
+        MatcherAssert.assertThat(writer.getDroppedEvents(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(store.getEventCount(), CoreMatchers.is(4000L));
+        MatcherAssert.assertThat(store.getEventsForSubscription(new SubscriptionImpl("sub-2", null, null))
+                .getTotalHits(), CoreMatchers.is(1000L));
+    }
+
+    @Test
+    public void testFullQueue() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore(0, 0);
+        EventLogWriter writer = new EventLogWriter(store, null, 10, 64);
+        SubscriptionImpl sub = new SubscriptionImpl("sub", null, null);
+
+        /*
+        * the writer is not started, so the queue runs full
+        */
+        for (int i = 0; i < 15; i++) {
+            writer.submit(sub, new EventHolderImpl(Integer.toString(i), System.currentTimeMillis(), sub, null,
+                    Optional.empty()), 20);
+        }
+
+        MatcherAssert.assertThat(writer.getPendingEvents(), CoreMatchers.is(10));
+        MatcherAssert.assertThat(writer.getDroppedEvents(), CoreMatchers.is(5L));
+        MatcherAssert.assertThat(store.getEventCount(), CoreMatchers.is(0L));
+    }
+
+}
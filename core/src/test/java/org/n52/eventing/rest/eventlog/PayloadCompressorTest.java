@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class PayloadCompressorTest {
+
+    private static final String DOCUMENT;
+
+    static {
+        StringBuilder sb = new StringBuilder("<om:OM_Observation>");
+        for (int i = 0; i < 100; i++) {
+            sb.append("<om:result uom=\"degC\">").append(i % 7).append("</om:result>");
+        }
+        DOCUMENT = sb.append("</om:OM_Observation>").toString();
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCompression() throws IOException {
+        PayloadCompressor compressor = new PayloadCompressor(512);
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        sub.setPublicationId("pub-1");
+
+        EventHolder compressed = compressor.compress(sub, createEvent(sub, DOCUMENT));
+        Streamable content = compressed.streamableObject().get();
+        MatcherAssert.assertThat(content instanceof CompressedStreamable, CoreMatchers.is(true));
+        MatcherAssert.assertThat(read(content.asStream()), CoreMatchers.is(DOCUMENT));
+
+        Streamable encoded = ((CompressedStreamable) content).getEncoded();
+        MatcherAssert.assertThat(read(new GZIPInputStream(encoded.asStream())), CoreMatchers.is(DOCUMENT));
+
+        /*
+        * too small to be compressed
+        */
+        EventHolder small = compressor.compress(sub, createEvent(sub, "<a/>"));
+        MatcherAssert.assertThat(small.streamableObject().get() instanceof CompressedStreamable,
+                CoreMatchers.is(false));
+
+        PayloadCompressor.CompressionStatistics stats = compressor.getStatistics().get("pub-1");
+        MatcherAssert.assertThat(stats.getEvents(), CoreMatchers.is(2L));
+        MatcherAssert.assertThat(stats.getOriginalBytes(), CoreMatchers.is((long) DOCUMENT.length() + 4));
+        MatcherAssert.assertThat(stats.getSavedBytes() > DOCUMENT.length() / 2, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void testCompressedSegments() throws Exception {
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        SegmentedEventLogStore store = new SegmentedEventLogStore(directory, 64 * 1024, Long.MAX_VALUE,
+                Long.MAX_VALUE, 0);
+        Field field = SegmentedEventLogStore.class.getDeclaredField("compressor");
+        field.setAccessible(true);
+        field.set(store, new PayloadCompressor(512));
+        store.afterPropertiesSet();
+        store.addEvent(sub, createEvent(sub, DOCUMENT), 20);
+        store.destroy();
+
+        store = new SegmentedEventLogStore(directory, 64 * 1024, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+        store.afterPropertiesSet();
+        Streamable content = store.getSingleEvent("sub-1_event", null).get().streamableObject().get();
+        MatcherAssert.assertThat(content instanceof CompressedStreamable, CoreMatchers.is(true));
+        MatcherAssert.assertThat(read(content.asStream()), CoreMatchers.is(DOCUMENT));
+        store.destroy();
+    }
+
+    private EventHolderImpl createEvent(SubscriptionImpl sub, String payload) {
+        ByteBuffer content = ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+        return new EventHolderImpl(sub.getId() + "_event", new DateTime(), sub, null,
+                Optional.of(new ByteBufferStreamable(content, "application/xml")));
+    }
+
+    private String read(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class PayloadSlabAllocatorTest {
+
+    @Test
+    public void testReservedMemoryWithShiftingSizes() {
+        long budget = 4L * PayloadSlabAllocator.SLAB_SIZE;
+        PayloadSlabAllocator allocator = new PayloadSlabAllocator(budget);
+        Deque<PayloadSlabAllocator.Payload> live = new ArrayDeque<>();
+
+        /*
+        * every round fills the budget with one size class, evicting the
+        * oldest payloads like the event log does
+        */
+        long maximumReserved = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int size = PayloadSlabAllocator.MIN_CHUNK_SIZE; size <= PayloadSlabAllocator.MAX_CHUNK_SIZE;
+                    size *= 2) {
+                ByteBuffer content = ByteBuffer.allocate(size);
+                for (int i = 0; i < budget / size; i++) {
+                    live.add(allocator.allocate(content));
+                    while (allocator.isOverBudget()) {
+                        allocator.free(live.poll());
+                    }
+                    maximumReserved = Math.max(maximumReserved, allocator.getReservedBytes());
+                }
+            }
+        }
+
+        int sizeClasses = Integer.numberOfTrailingZeros(PayloadSlabAllocator.MAX_CHUNK_SIZE)
+                - Integer.numberOfTrailingZeros(PayloadSlabAllocator.MIN_CHUNK_SIZE) + 1;
+        MatcherAssert.assertThat(maximumReserved,
+                Matchers.lessThanOrEqualTo(budget + (sizeClasses + 1L) * PayloadSlabAllocator.SLAB_SIZE));
+
+        while (!live.isEmpty()) {
+            allocator.free(live.poll());
+        }
+        MatcherAssert.assertThat(allocator.getUsedBytes(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(allocator.getReservedBytes(), Matchers.lessThanOrEqualTo(budget));
+    }
+
+    @Test
+    public void testDedicatedBuffers() {
+        PayloadSlabAllocator allocator = new PayloadSlabAllocator(1024 * 1024);
+        int length = PayloadSlabAllocator.MAX_CHUNK_SIZE + 1;
+        PayloadSlabAllocator.Payload payload = allocator.allocate(ByteBuffer.allocate(length));
+        MatcherAssert.assertThat(allocator.getReservedBytes(), CoreMatchers.is((long) length));
+
+        allocator.free(payload);
+        MatcherAssert.assertThat(payload.isValid(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(allocator.getReservedBytes(), CoreMatchers.is(0L));
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.eventing.rest.PaginationFactory;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class RingBufferEventLogStoreTest {
+
+    @Test
+    public void testEviction() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore();
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+
+        for (int i = 0; i < 5; i++) {
+            store.addEvent(sub, createEvent(sub, i), 3);
+        }
+
+        List<String> ids = store.getEventsForSubscription(sub).getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids.size(), CoreMatchers.is(3));
+        MatcherAssert.assertThat(ids.get(0), CoreMatchers.is("sub-1_2"));
+        MatcherAssert.assertThat(ids.get(2), CoreMatchers.is("sub-1_4"));
+
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_4", null).isPresent(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_1", null), CoreMatchers.is(Optional.empty()));
+        MatcherAssert.assertThat(store.getAllEvents().getTotalHits(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void testPaginatedMerge() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore();
+        SubscriptionImpl subA = new SubscriptionImpl("sub-a", null, null);
+        SubscriptionImpl subB = new SubscriptionImpl("sub-b", null, null);
+
+        DateTime base = new DateTime(2020, 1, 1, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl target = i % 3 == 0 ? subA : subB;
+            store.addEvent(target, new EventHolderImpl(Integer.toString(i), base.plusMinutes(i),
+                    target, null, Optional.empty()), 20);
+        }
+
+        PaginationFactory pages = new PaginationFactory();
+        QueryResult<EventHolder> page = store.getAllEvents(pages.create(2, 3));
+        List<String> ids = page.getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("7", "6", "5")));
+        MatcherAssert.assertThat(page.getTotalHits(), CoreMatchers.is(10L));
+
+        QueryResult<EventHolder> subPage = store.getEventsForSubscription(subA, pages.create(1, 10));
+        ids = subPage.getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("6", "3", "0")));
+        MatcherAssert.assertThat(subPage.getTotalHits(), CoreMatchers.is(4L));
+    }
+
+    @Test
+    public void testTimeRange() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore();
+        SubscriptionImpl subA = new SubscriptionImpl("sub-a", null, null);
+        SubscriptionImpl subB = new SubscriptionImpl("sub-b", null, null);
+
+        DateTime base = new DateTime(2020, 1, 1, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl target = i % 2 == 0 ? subA : subB;
+            store.addEvent(target, new EventHolderImpl(Integer.toString(i), base.plusMinutes(i),
+                    target, null, Optional.empty()), 20);
+        }
+
+        QueryResult<EventHolder> range = store.getAllEvents(base.plusMinutes(3), base.plusMinutes(7), null);
+        List<String> ids = range.getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("6", "5", "4", "3")));
+        MatcherAssert.assertThat(range.getTotalHits(), CoreMatchers.is(4L));
+
+        range = store.getEventsForSubscription(subA, base.plusMinutes(3), null, new PaginationFactory().create(0, 2));
+        ids = range.getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("8", "6")));
+        MatcherAssert.assertThat(range.getTotalHits(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void testPayloadBudget() throws IOException {
+        RingBufferEventLogStore store = new RingBufferEventLogStore(4 * 1024, 0);
+        SubscriptionImpl subA = new SubscriptionImpl("sub-a", null, null);
+        SubscriptionImpl subB = new SubscriptionImpl("sub-b", null, null);
+
+        byte[] payload = new byte[1000];
+        Arrays.fill(payload, (byte) 'x');
+        List<EventHolder> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl target = i % 2 == 0 ? subA : subB;
+            store.addEvent(target, new EventHolderImpl(Integer.toString(i), new DateTime(), target, null,
+                    Optional.of(new ByteBufferStreamable(ByteBuffer.wrap(payload), "text/plain"))), 20);
+            added.add(store.getSingleEvent(Integer.toString(i), null).get());
+        }
+
+        /*
+        * 1000 bytes occupy a 1024 byte chunk, only the four newest fit
+        */
+        List<String> ids = store.getAllEvents(new PaginationFactory().create(0, 10)).getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("9", "8", "7", "6")));
+        MatcherAssert.assertThat(store.getSingleEvent("5", null), CoreMatchers.is(Optional.empty()));
+
+        Streamable content = store.getSingleEvent("9", null).get().streamableObject().get();
+        try (InputStream is = content.asStream()) {
+            MatcherAssert.assertThat(ByteStreams.toByteArray(is), CoreMatchers.is(payload));
+        }
+
+        Streamable evicted = added.get(0).streamableObject().get();
+        Assertions.assertThrows(IOException.class, () -> evicted.asStream().read());
+    }
+
+    @Test
+    public void testEventCountLimit() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore(0, 6);
+        SubscriptionImpl small = new SubscriptionImpl("small", null, null);
+        SubscriptionImpl large = new SubscriptionImpl("large", null, null);
+
+        DateTime base = new DateTime();
+        for (int i = 0; i < 10; i++) {
+            store.addEvent(small, new EventHolderImpl("s" + i, base.plusMinutes(i), small, null,
+                    Optional.empty()), 2);
+            store.addEvent(large, new EventHolderImpl("l" + i, base.plusMinutes(i).plusSeconds(1), large, null,
+                    Optional.empty()), 100);
+        }
+
+        /*
+        * the small log is bound by its own capacity, the large one by the
+        * global event count
+        */
+        List<String> ids = store.getAllEvents(new PaginationFactory().create(0, 20)).getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("l9", "s9", "l8", "s8", "l7", "l6")));
+        MatcherAssert.assertThat(store.getEventCount(), CoreMatchers.is(6L));
+        MatcherAssert.assertThat(store.getSingleEvent("l5", null), CoreMatchers.is(Optional.empty()));
+    }
+
+    @Test
+    public void testRemoveSubscription() {
+        RingBufferEventLogStore store = new RingBufferEventLogStore(64 * 1024, 0);
+        SubscriptionImpl subA = new SubscriptionImpl("sub-a", null, null);
+        SubscriptionImpl subB = new SubscriptionImpl("sub-b", null, null);
+
+        byte[] payload = new byte[1000];
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl target = i % 2 == 0 ? subA : subB;
+            store.addEvent(target, new EventHolderImpl(Integer.toString(i), new DateTime(), target, null,
+                    Optional.of(new ByteBufferStreamable(ByteBuffer.wrap(payload), "text/plain"))), 20);
+        }
+
+        EventLogUsage usage = store.getUsage().get("sub-a");
+        MatcherAssert.assertThat(usage.getEvents(), CoreMatchers.is(5L));
+        MatcherAssert.assertThat(usage.getOffHeapBytes(), CoreMatchers.is(5000L));
+
+        store.removeSubscription("sub-a");
+
+        MatcherAssert.assertThat(store.getUsage().keySet(), CoreMatchers.is(Collections.singleton("sub-b")));
+        MatcherAssert.assertThat(store.getEventCount(), CoreMatchers.is(5L));
+        MatcherAssert.assertThat(store.getSingleEvent("0", null), CoreMatchers.is(Optional.empty()));
+        MatcherAssert.assertThat(store.getEventsForSubscription(subA).getTotalHits(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(store.getAllEvents().getTotalHits(), CoreMatchers.is(5L));
+    }
+
+    @Test
+    public void testSnapshotsWhileWriting() throws InterruptedException {
+        EventRingBuffer buffer = new EventRingBuffer(16);
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        AtomicBoolean inconsistent = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread reader = new Thread(() -> {
+            while (done.getCount() > 0) {
+                List<EventHolder> snapshot = buffer.snapshot();
+                List<Integer> numbers = new ArrayList<>();
+                snapshot.forEach(eh -> numbers.add(Integer.parseInt(eh.getId().substring(6))));
+                for (int i = 1; i < numbers.size(); i++) {
+                    if (numbers.get(i) != numbers.get(i - 1) + 1) {
+                        inconsistent.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 100000; i++) {
+            buffer.add(createEvent(sub, i));
+        }
+        done.countDown();
+        reader.join();
+
+        MatcherAssert.assertThat(inconsistent.get(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(buffer.size(), CoreMatchers.is(16));
+    }
+
+    private EventHolderImpl createEvent(SubscriptionImpl sub, int i) {
+        return new EventHolderImpl(String.format("%s_%s", sub.getId(), i), new DateTime(), sub, null, Optional.empty());
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.eventlog;
+
+import com.google.common.io.ByteStreams;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.eventing.rest.PaginationFactory;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class SegmentedEventLogStoreTest {
+
+    private static final long HOUR = 60L * 60L * 1000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecovery() throws Exception {
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        SegmentedEventLogStore store = createStore(4096, Long.MAX_VALUE);
+        for (int i = 0; i < 50; i++) {
+            store.addEvent(sub, createEvent(sub, i, "payload " + i), 20);
+        }
+        store.destroy();
+
+        store = createStore(4096, Long.MAX_VALUE);
+        MatcherAssert.assertThat(store.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(50L));
+
+        Optional<EventHolder> event = store.getSingleEvent("sub-1_42", null);
+        MatcherAssert.assertThat(event.isPresent(), CoreMatchers.is(true));
+        Streamable content = event.get().streamableObject().get();
+        MatcherAssert.assertThat(content.getContentType(), CoreMatchers.is("text/plain"));
+        try (InputStream is = content.asStream()) {
+            MatcherAssert.assertThat(new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8),
+                    CoreMatchers.is("payload 42"));
+        }
+
+        List<String> ids = store.getEventsForSubscription(sub, new PaginationFactory().create(0, 2)).getResult()
+                .stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("sub-1_49", "sub-1_48")));
+        store.destroy();
+    }
+
+    @Test
+    public void testTimeRange() throws Exception {
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        SegmentedEventLogStore store = createStore(4096, Long.MAX_VALUE);
+        DateTime base = new DateTime();
+        for (int i = 0; i < 100; i++) {
+            store.addEvent(sub, new EventHolderImpl(Integer.toString(i), base.plusSeconds(i), sub, null,
+                    Optional.empty()), 20);
+        }
+
+        QueryResult<EventHolder> range = store.getEventsForSubscription(sub, base.plusSeconds(40),
+                base.plusSeconds(60), new PaginationFactory().create(5, 3));
+        List<String> ids = range.getResult().stream()
+                .map(EventHolder::getId)
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, CoreMatchers.is(Arrays.asList("54", "53", "52")));
+        MatcherAssert.assertThat(range.getTotalHits(), CoreMatchers.is(20L));
+        MatcherAssert.assertThat(store.getAllEvents(null, base.plusSeconds(10), null).getTotalHits(),
+                CoreMatchers.is(10L));
+        store.destroy();
+    }
+
+    @Test
+    public void testCorruptedTail() throws Exception {
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        SegmentedEventLogStore store = createStore(1024 * 1024, Long.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            store.addEvent(sub, createEvent(sub, i, "payload " + i), 20);
+        }
+        store.destroy();
+
+        /*
+        * flip the last byte of the last record's payload
+        */
+        Path segment = directory.resolve(LogSegment.fileName(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            int position = 0;
+            int lastEnd = 0;
+            while (true) {
+                header.clear();
+                channel.read(header, position);
+                int length = header.getInt(0);
+                if (length == 0) {
+                    break;
+                }
+                position += LogSegment.HEADER_SIZE + length;
+                lastEnd = position;
+            }
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), lastEnd - 1);
+        }
+
+        store = createStore(1024 * 1024, Long.MAX_VALUE);
+        MatcherAssert.assertThat(store.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(2L));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_2", null), CoreMatchers.is(Optional.empty()));
+
+        /*
+        * appends continue behind the last valid record, the torn one is
+        * never recovered again
+        */
+        store.addEvent(sub, createEvent(sub, 3, "payload 3"), 20);
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_3", null).isPresent(), CoreMatchers.is(true));
+        store.destroy();
+
+        store = createStore(1024 * 1024, Long.MAX_VALUE);
+        MatcherAssert.assertThat(store.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(3L));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_2", null), CoreMatchers.is(Optional.empty()));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_3", null).isPresent(), CoreMatchers.is(true));
+        store.destroy();
+    }
+
+    @Test
+    public void testRestartsKeepHistory() throws Exception {
+        /*
+        * every run adds a single event, the size retention must not count
+        * the unused space of the segments
+        */
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        for (int i = 0; i < 10; i++) {
+            SegmentedEventLogStore store = createStore(4096, 3 * 4096);
+            store.addEvent(sub, createEvent(sub, i, "payload " + i), 20);
+            store.destroy();
+        }
+
+        SegmentedEventLogStore store = createStore(4096, 3 * 4096);
+        MatcherAssert.assertThat(store.getEventsForSubscription(sub).getTotalHits(), CoreMatchers.is(10L));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_0", null).isPresent(), CoreMatchers.is(true));
+        try (Stream<Path> files = Files.list(directory)) {
+            MatcherAssert.assertThat(files.count(), CoreMatchers.is(1L));
+        }
+        store.destroy();
+    }
+
+    @Test
+    public void testSizeRetention() throws Exception {
+        SubscriptionImpl sub = new SubscriptionImpl("sub-1", null, null);
+        SegmentedEventLogStore store = createStore(1024, 4096);
+        for (int i = 0; i < 200; i++) {
+            store.addEvent(sub, createEvent(sub, i, "payload " + i), 20);
+        }
+
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_0", null), CoreMatchers.is(Optional.empty()));
+        MatcherAssert.assertThat(store.getSingleEvent("sub-1_199", null).isPresent(), CoreMatchers.is(true));
+        /*
+        * the maximum size counts the records, the segments keep some unused
+        * space behind their last record
+        */
+        try (Stream<Path> files = Files.list(directory)) {
+            MatcherAssert.assertThat(files.count() <= 5, CoreMatchers.is(true));
+        }
+
+        long total = store.getEventsForSubscription(sub).getTotalHits();
+        MatcherAssert.assertThat(total < 200, CoreMatchers.is(true));
+        MatcherAssert.assertThat(store.getAllEvents().getTotalHits(), CoreMatchers.is(total));
+        store.destroy();
+    }
+
+    private SegmentedEventLogStore createStore(int segmentSize, long maximumSize) throws Exception {
+        SegmentedEventLogStore store = new SegmentedEventLogStore(directory, segmentSize, 72 * HOUR, maximumSize, 0);
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    private EventHolderImpl createEvent(SubscriptionImpl sub, int i, String payload) {
+        ByteBuffer content = ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+        return new EventHolderImpl(String.format("%s_%s", sub.getId(), i), new DateTime(), sub, null,
+                Optional.of(new ByteBufferStreamable(content, "text/plain")));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class RateCounterTest {
+
+    @Test
+    public void testBuckets() {
+        RateCounter counter = new RateCounter();
+        long start = 1000L * RateCounter.HOUR;
+
+        counter.increment(start);
+        counter.increment(start + 30 * 1000L);
+        counter.increment(start + RateCounter.MINUTE);
+
+        long[] minutes = counter.perMinute(start + RateCounter.MINUTE);
+        MatcherAssert.assertThat(minutes.length, CoreMatchers.is(RateCounter.MINUTES));
+        MatcherAssert.assertThat(minutes[RateCounter.MINUTES - 1], CoreMatchers.is(1L));
+        MatcherAssert.assertThat(minutes[RateCounter.MINUTES - 2], CoreMatchers.is(2L));
+
+        counter.increment(start + 2 * RateCounter.HOUR);
+
+        /*
+        * the minute buckets of the first hour have been recycled by now
+        */
+        long now = start + 2 * RateCounter.HOUR;
+        MatcherAssert.assertThat(sum(counter.perMinute(now)), CoreMatchers.is(1L));
+
+        long[] hours = counter.perHour(now);
+        MatcherAssert.assertThat(hours[RateCounter.HOURS - 1], CoreMatchers.is(1L));
+        MatcherAssert.assertThat(hours[RateCounter.HOURS - 2], CoreMatchers.is(0L));
+        MatcherAssert.assertThat(hours[RateCounter.HOURS - 3], CoreMatchers.is(3L));
+        MatcherAssert.assertThat(counter.getTotal(), CoreMatchers.is(4L));
+
+        MatcherAssert.assertThat(sum(counter.perHour(start + 100 * RateCounter.HOUR)), CoreMatchers.is(0L));
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        RateCounter counter = new RateCounter();
+        long now = 2000L * RateCounter.HOUR;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    counter.increment(now + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        MatcherAssert.assertThat(counter.perMinute(now)[RateCounter.MINUTES - 1], CoreMatchers.is(40000L));
+        MatcherAssert.assertThat(counter.perHour(now)[RateCounter.HOURS - 1], CoreMatchers.is(40000L));
+    }
+
+    private static long sum(long[] values) {
+        long result = 0;
+        for (long v : values) {
+            result += v;
+        }
+        return result;
+    }
+
+}
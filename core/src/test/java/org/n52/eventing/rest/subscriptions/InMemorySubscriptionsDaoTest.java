@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.n52.eventing.rest.PaginationFactory;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.RequestContext;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.templates.TemplateInstance;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class InMemorySubscriptionsDaoTest {
+
+    @AfterEach
+    public void cleanUp() {
+        RequestContext.removeThreadLocal();
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        InMemorySubscriptionsDao dao = new InMemorySubscriptionsDao();
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl sub = new SubscriptionImpl("sub-" + i, null, null);
+            sub.setPublicationId(i % 2 == 0 ? "pub-even" : "pub-odd");
+            sub.setTemplate(new TemplateInstance(i < 3 ? "overshoot" : "undershoot", Collections.emptyMap()));
+            sub.setEnabled(true);
+            if (i == 9) {
+                sub.setEndOfLife(new DateTime().minusMinutes(1));
+            }
+            dao.addSubscription(sub.getId(), sub);
+        }
+        dao.updateStatus("sub-4", false);
+        dao.remove("sub-6");
+
+        MatcherAssert.assertThat(ids(dao, filter("templates", "overshoot")),
+                CoreMatchers.is(Arrays.asList("sub-0", "sub-1", "sub-2")));
+        MatcherAssert.assertThat(ids(dao, filter("publications", "pub-even", "templates", "undershoot")),
+                CoreMatchers.is(Arrays.asList("sub-4", "sub-8")));
+        MatcherAssert.assertThat(ids(dao, filter("publications", "pub-even", "enabled", "true")),
+                CoreMatchers.is(Arrays.asList("sub-0", "sub-2", "sub-8")));
+        MatcherAssert.assertThat(ids(dao, filter("expired", "true")),
+                CoreMatchers.is(Collections.singletonList("sub-9")));
+        MatcherAssert.assertThat(ids(dao, filter("templates", "overshoot,undershoot", "enabled", "false")),
+                CoreMatchers.is(Collections.singletonList("sub-4")));
+        MatcherAssert.assertThat(ids(dao, filter("users", "nobody")), CoreMatchers.is(Collections.emptyList()));
+
+        /*
+        * a changed end of life moves the subscription in the expiry index
+        */
+        dao.updateEndOfLife("sub-9", new DateTime().plusMinutes(1));
+        dao.updateEndOfLife("sub-3", new DateTime().minusMinutes(1));
+        dao.updateEndOfLife("sub-1", new DateTime().minusMinutes(2));
+        MatcherAssert.assertThat(ids(dao, filter("expired", "true")),
+                CoreMatchers.is(Arrays.asList("sub-1", "sub-3")));
+        MatcherAssert.assertThat(ids(dao, filter("publications", "pub-odd", "expired", "false")),
+                CoreMatchers.is(Arrays.asList("sub-5", "sub-7", "sub-9")));
+
+        RequestContext.storeInThreadLocal(filter("expired", "true"));
+        QueryResult<Subscription> expired = dao.getSubscriptions(new PaginationFactory().create(1, 1));
+        MatcherAssert.assertThat(ids(expired), CoreMatchers.is(Collections.singletonList("sub-3")));
+        MatcherAssert.assertThat(expired.getTotalHits(), CoreMatchers.is(2L));
+    }
+
+    @Test
+    public void testPagination() {
+        InMemorySubscriptionsDao dao = new InMemorySubscriptionsDao();
+        for (int i = 0; i < 10; i++) {
+            SubscriptionImpl sub = new SubscriptionImpl("sub-" + i, null, null);
+            sub.setPublicationId(i % 2 == 0 ? "pub-even" : "pub-odd");
+            dao.addSubscription(sub.getId(), sub);
+        }
+
+        QueryResult<Subscription> all = dao.getSubscriptions(new PaginationFactory().create(3, 4));
+        MatcherAssert.assertThat(ids(all), CoreMatchers.is(Arrays.asList("sub-3", "sub-4", "sub-5", "sub-6")));
+        MatcherAssert.assertThat(all.getTotalHits(), CoreMatchers.is(10L));
+
+        RequestContext.storeInThreadLocal(filter("publications", "pub-odd"));
+        QueryResult<Subscription> odd = dao.getSubscriptions(new PaginationFactory().create(1, 2));
+        MatcherAssert.assertThat(ids(odd), CoreMatchers.is(Arrays.asList("sub-3", "sub-5")));
+        MatcherAssert.assertThat(odd.getTotalHits(), CoreMatchers.is(5L));
+
+        RequestContext.removeThreadLocal();
+        MatcherAssert.assertThat(dao.getSubscriptions(null).getTotalHits(), CoreMatchers.is(10L));
+
+        QueryResult<Subscription> last = dao.getSubscriptions(new PaginationFactory().create(8, 4));
+        MatcherAssert.assertThat(ids(last), CoreMatchers.is(Arrays.asList("sub-8", "sub-9")));
+        MatcherAssert.assertThat(last.getTotalHits(), CoreMatchers.is(10L));
+    }
+
+    @Test
+    public void testVersions() throws Exception {
+        InMemorySubscriptionsDao dao = new InMemorySubscriptionsDao();
+        long initial = dao.getVersion();
+        dao.addSubscription("sub-1", new SubscriptionImpl("sub-1", null, null));
+        dao.addSubscription("sub-2", new SubscriptionImpl("sub-2", null, null));
+        long added = dao.getVersion();
+        MatcherAssert.assertThat(added > initial, CoreMatchers.is(true));
+
+        long first = dao.getSubscriptionVersion("sub-1").getAsLong();
+        long second = dao.getSubscriptionVersion("sub-2").getAsLong();
+
+        /*
+        * reads do not change versions, updates change the collection and the
+        * updated subscription only
+        */
+        dao.getSubscriptions(null);
+        MatcherAssert.assertThat(dao.getVersion(), CoreMatchers.is(added));
+
+        dao.updateStatus("sub-1", false);
+        MatcherAssert.assertThat(dao.getVersion() > added, CoreMatchers.is(true));
+        MatcherAssert.assertThat(dao.getSubscriptionVersion("sub-1").getAsLong() > first, CoreMatchers.is(true));
+        MatcherAssert.assertThat(dao.getSubscriptionVersion("sub-2").getAsLong(), CoreMatchers.is(second));
+
+        long updated = dao.getVersion();
+        dao.remove("sub-2");
+        MatcherAssert.assertThat(dao.getVersion() > updated, CoreMatchers.is(true));
+        MatcherAssert.assertThat(dao.getSubscriptionVersion("sub-2").isPresent(), CoreMatchers.is(false));
+    }
+
+    private static List<String> ids(InMemorySubscriptionsDao dao, RequestContext context) {
+        RequestContext.storeInThreadLocal(context);
+        try {
+            return ids(dao.getSubscriptions(null));
+        }
+        finally {
+            RequestContext.removeThreadLocal();
+        }
+    }
+
+    private static List<String> ids(QueryResult<Subscription> result) {
+        return result.getResult().stream().map(Subscription::getId).collect(Collectors.toList());
+    }
+
+    private static RequestContext filter(String... keyValues) {
+        Map<String, String[]> parameters = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            parameters.put(keyValues[i], new String[] {keyValues[i + 1]});
+        }
+
+        return new RequestContext() {
+            private Map<String, String[]> params = parameters;
+
+            @Override
+            public String getBaseApiUrl() {
+                return null;
+            }
+
+            @Override
+            public String getFullUrl() {
+                return null;
+            }
+
+            @Override
+            public Map<String, String[]> getParameters() {
+                return params;
+            }
+
+            @Override
+            public void setParameters(Map<String, String[]> parameters) {
+                this.params = parameters;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.eventing.rest.deliverymethods.DeliveryMethodInstance;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.parameters.ParameterInstance;
+import org.n52.eventing.rest.templates.TemplateInstance;
+import org.n52.eventing.rest.users.UserImpl;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class JournaledSubscriptionsDaoTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestore() throws Exception {
+        JournaledSubscriptionsDao dao = new JournaledSubscriptionsDao(directory, 1000, false);
+        dao.afterPropertiesSet();
+
+        DateTime eol = new DateTime().plusDays(2);
+        for (int i = 0; i < 5; i++) {
+            dao.addSubscription("sub-" + i, createSubscription("sub-" + i));
+        }
+        dao.updateEndOfLife("sub-1", eol);
+        dao.updateStatus("sub-2", false);
+        dao.remove("sub-3");
+
+        Map<String, Subscription> bulk = new LinkedHashMap<>();
+        bulk.put("sub-5", createSubscription("sub-5"));
+        bulk.put("sub-6", createSubscription("sub-6"));
+        dao.addSubscriptions(bulk);
+
+        /*
+        * no shutdown, the journal alone restores the state
+        */
+        JournaledSubscriptionsDao restored = new JournaledSubscriptionsDao(directory, 1000, false);
+        restored.afterPropertiesSet();
+
+        MatcherAssert.assertThat(ids(restored), CoreMatchers.is(Arrays.asList("sub-0", "sub-1", "sub-2", "sub-4",
+                "sub-5", "sub-6")));
+
+        SubscriptionImpl sub = (SubscriptionImpl) restored.getSubscription("sub-1");
+        MatcherAssert.assertThat(sub.getEndOfLife().getMillis(), CoreMatchers.is(eol.getMillis()));
+        MatcherAssert.assertThat(sub.getLabel(), CoreMatchers.is("label sub-1"));
+        MatcherAssert.assertThat(sub.getPublicationId(), CoreMatchers.is("pub-1"));
+        MatcherAssert.assertThat(sub.getUser().getId(), CoreMatchers.is("user-1"));
+        MatcherAssert.assertThat(sub.getUser().isAdmin(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(sub.getDescription(), CoreMatchers.is("description sub-1"));
+        MatcherAssert.assertThat(sub.getDetails(),
+                CoreMatchers.is(Collections.singletonMap("window", Arrays.asList("PT1H", 3))));
+        MatcherAssert.assertThat(sub.getEventLogCapacity(), CoreMatchers.is(42));
+        MatcherAssert.assertThat(sub.getNotificationInstance().getId(), CoreMatchers.is("overshoot"));
+
+        Map<String, ParameterInstance> params = sub.getNotificationInstance().getParameters();
+        MatcherAssert.assertThat(params.get("sensorID").getValue(), CoreMatchers.is("sensor-1"));
+        MatcherAssert.assertThat(params.get("thresholdValue").getValue(), CoreMatchers.is(55.2));
+        MatcherAssert.assertThat(params.get("thresholdValue").getDataType(), CoreMatchers.is("number"));
+        MatcherAssert.assertThat(params.get("values").getValue(), CoreMatchers.is(Arrays.asList(1, 2)));
+        MatcherAssert.assertThat(sub.getDeliveryMethods().get(0).getParameters().get("to").getValue(),
+                CoreMatchers.is("someone@example.org"));
+
+        MatcherAssert.assertThat(((SubscriptionImpl) restored.getSubscription("sub-2")).getEnabled(),
+                CoreMatchers.is(false));
+        MatcherAssert.assertThat(restored.getSubscription("sub-2").getUser().isAdmin(), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        JournaledSubscriptionsDao dao = new JournaledSubscriptionsDao(directory, 1000, false);
+        dao.afterPropertiesSet();
+        for (int i = 0; i < 5; i++) {
+            dao.addSubscription("sub-" + i, createSubscription("sub-" + i));
+        }
+
+        dao.compact();
+        dao.remove("sub-0");
+        dao.addSubscription("sub-5", createSubscription("sub-5"));
+
+        List<String> files = Files.list(directory).map(p -> p.getFileName().toString()).sorted()
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(files, CoreMatchers.is(Arrays.asList("subscriptions-1.journal",
+                "subscriptions-1.snapshot")));
+
+        JournaledSubscriptionsDao restored = new JournaledSubscriptionsDao(directory, 1000, false);
+        restored.afterPropertiesSet();
+        MatcherAssert.assertThat(ids(restored), CoreMatchers.is(Arrays.asList("sub-1", "sub-2", "sub-3",
+                "sub-4", "sub-5")));
+
+        /*
+        * shutdown compacts into a snapshot of the next generation
+        */
+        restored.destroy();
+        files = Files.list(directory).map(p -> p.getFileName().toString()).sorted()
+                .collect(Collectors.toList());
+        MatcherAssert.assertThat(files, CoreMatchers.is(Arrays.asList("subscriptions-2.journal",
+                "subscriptions-2.snapshot")));
+    }
+
+    @Test
+    public void testTornEntry() throws Exception {
+        JournaledSubscriptionsDao dao = new JournaledSubscriptionsDao(directory, 1000, false);
+        dao.afterPropertiesSet();
+        dao.addSubscription("sub-0", createSubscription("sub-0"));
+        dao.addSubscription("sub-1", createSubscription("sub-1"));
+
+        /*
+        * a crash in the middle of writing an entry
+        */
+        Path journal = directory.resolve("subscriptions-0.journal");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        JournaledSubscriptionsDao restored = new JournaledSubscriptionsDao(directory, 1000, false);
+        restored.afterPropertiesSet();
+        MatcherAssert.assertThat(ids(restored), CoreMatchers.is(Collections.singletonList("sub-0")));
+
+        /*
+        * new entries are appended after the last complete one
+        */
+        restored.addSubscription("sub-2", createSubscription("sub-2"));
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 1, 2, 3}));
+        }
+
+        JournaledSubscriptionsDao again = new JournaledSubscriptionsDao(directory, 1000, false);
+        again.afterPropertiesSet();
+        MatcherAssert.assertThat(ids(again), CoreMatchers.is(Arrays.asList("sub-0", "sub-2")));
+    }
+
+    private static List<String> ids(SubscriptionsService dao) {
+        return dao.getSubscriptions(null).getResult().stream()
+                .map(Subscription::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static SubscriptionImpl createSubscription(String id) {
+        String suffix = id.substring(id.indexOf('-') + 1);
+        SubscriptionImpl sub = new SubscriptionImpl(id, "label " + id, "description " + id);
+        sub.setPublicationId("pub-" + suffix);
+        UserImpl user = new UserImpl("user-" + suffix, "first", "last", "user@example.org");
+        user.setAdmin("1".equals(suffix));
+        sub.setUser(user);
+        sub.setDetails(Collections.singletonMap("window", Arrays.asList("PT1H", 3)));
+        sub.setEnabled(true);
+        sub.setCreated(new DateTime());
+        sub.setModified(new DateTime());
+        sub.setEventLogCapacity(42);
+
+        Map<String, ParameterInstance> params = new LinkedHashMap<>();
+        params.put("sensorID", new ParameterInstance("sensorID", "sensor-" + suffix, "text"));
+        params.put("thresholdValue", new ParameterInstance("thresholdValue", 55.2, "number"));
+        params.put("values", new ParameterInstance("values", Arrays.asList(1, 2), "text"));
+        sub.setTemplate(new TemplateInstance("overshoot", params));
+
+        sub.addDeliveryMethod(new DeliveryMethodInstance("email", Collections.singletonMap("to",
+                new ParameterInstance("to", "someone@example.org", "text"))));
+        return sub;
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.QueryResult;
+import org.n52.eventing.rest.factory.TemplatesDaoFactory;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.TemplateDefinition;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.publications.PublicationsService;
+import org.n52.eventing.rest.templates.TemplateInstance;
+import org.n52.eventing.rest.templates.TemplatesDao;
+import org.n52.eventing.rest.templates.UnknownTemplateException;
+import org.n52.eventing.rest.users.UserImpl;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class SubscriptionManagerImplTest {
+
+    @Mock
+    private SubscriptionsService dao;
+
+    @Mock
+    private TemplatesDaoFactory templatesDaoFactory;
+
+    @Mock
+    private FilterLogic filterLogic;
+
+    @Mock
+    private PublicationsService publicationsDao;
+
+    @Mock
+    private Configuration config;
+
+    @InjectMocks
+    private SubscriptionManagerImpl manager;
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        manager.destroy();
+        mocks.close();
+    }
+
+    @Test
+    public void testBootstrap() throws Exception {
+        SubscriptionImpl withTemplate = createSubscription("sub-template", "overshoot", null);
+        SubscriptionImpl withoutTemplate = createSubscription("sub-plain", null, new DateTime().plusDays(1));
+        SubscriptionImpl unknownTemplate = createSubscription("sub-unknown", "gone", null);
+        SubscriptionImpl expired = createSubscription("sub-expired", "overshoot", new DateTime().minusDays(1));
+        List<Subscription> all = Arrays.asList(withTemplate, withoutTemplate, unknownTemplate, expired);
+
+        TemplateDefinition template = Mockito.mock(TemplateDefinition.class);
+        TemplatesDao templates = Mockito.mock(TemplatesDao.class);
+        Mockito.when(templates.getTemplate("overshoot")).thenReturn(template);
+        Mockito.when(templates.getTemplate("gone")).thenThrow(new UnknownTemplateException("not there: gone"));
+        Mockito.when(templatesDaoFactory.newDao()).thenReturn(templates);
+
+        Mockito.when(dao.getSubscriptions(null)).thenReturn(new QueryResult<>(all, all.size()));
+        Mockito.when(dao.hasSubscription(Mockito.anyString())).thenReturn(true);
+        Mockito.when(config.getParameterAsBoolean("subscriptions.bootstrap.async")).thenReturn(Optional.of(false));
+        Mockito.when(config.getParameterAsInt("subscriptions.bootstrap.threads")).thenReturn(Optional.of(2));
+
+        manager.afterPropertiesSet();
+
+        BootstrapStatus status = manager.getBootstrapStatus();
+        MatcherAssert.assertThat(status.isReady(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(status.getTotal(), CoreMatchers.is(4));
+        MatcherAssert.assertThat(status.getRegistered(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(status.getFailed(), CoreMatchers.is(1));
+        MatcherAssert.assertThat(status.getExpired(), CoreMatchers.is(1));
+
+        /*
+        * the templates are resolved from a single DAO
+        */
+        Mockito.verify(templatesDaoFactory, Mockito.times(1)).newDao();
+        Mockito.verify(filterLogic).internalSubscribe(withTemplate, template);
+        Mockito.verify(filterLogic).internalSubscribe(withoutTemplate, null);
+        Mockito.verify(filterLogic, Mockito.never()).internalSubscribe(Mockito.eq(expired), Mockito.any());
+        Mockito.verify(dao).remove("sub-expired");
+    }
+
+    @Test
+    public void testBulkSubscribe() throws Exception {
+        SubscriptionImpl valid = createSubscription(null, "overshoot", null);
+        SubscriptionImpl unknownPublication = createSubscription(null, null, null);
+        unknownPublication.setPublicationId("other-pub");
+        SubscriptionImpl rejected = createSubscription(null, "overshoot", null);
+        SubscriptionImpl unknownTemplate = createSubscription(null, "gone", null);
+
+        TemplateDefinition template = Mockito.mock(TemplateDefinition.class);
+        TemplatesDao templates = Mockito.mock(TemplatesDao.class);
+        Mockito.when(templates.getTemplate("overshoot")).thenReturn(template);
+        Mockito.when(templates.getTemplate("gone")).thenThrow(new UnknownTemplateException("not there: gone"));
+        Mockito.when(templatesDaoFactory.newDao()).thenReturn(templates);
+        Mockito.when(publicationsDao.hasPublication("pub")).thenReturn(true);
+
+        /*
+        * the engine rejects one of the valid definitions
+        */
+        Mockito.when(filterLogic.internalSubscribe(Mockito.anyMap())).thenAnswer(invocation -> {
+            Map<Subscription, TemplateDefinition> subs = invocation.getArgument(0);
+            MatcherAssert.assertThat(subs.keySet(), CoreMatchers.is(new LinkedHashSet<>(Arrays.asList(valid, rejected))));
+            valid.setId("sub-valid");
+            return Collections.singletonMap(rejected, new InvalidSubscriptionException("rejected"));
+        });
+
+        List<BulkResult> results = manager.subscribe(Arrays.asList(valid, unknownPublication, rejected,
+                unknownTemplate), new UserImpl("user", null, null, null));
+
+        MatcherAssert.assertThat(results.stream().map(BulkResult::isSuccess).collect(Collectors.toList()),
+                CoreMatchers.is(Arrays.asList(true, false, false, false)));
+        MatcherAssert.assertThat(results.get(0).getId(), CoreMatchers.is("sub-valid"));
+        MatcherAssert.assertThat(results.get(1).getError(), CoreMatchers.is("Publication unknown: other-pub"));
+        MatcherAssert.assertThat(results.get(2).getError(), CoreMatchers.is("rejected"));
+        MatcherAssert.assertThat(results.get(3).getError(), CoreMatchers.is("Template unknown: gone"));
+        MatcherAssert.assertThat(valid.getUser().getId(), CoreMatchers.is("user"));
+
+        Mockito.verify(templatesDaoFactory, Mockito.times(1)).newDao();
+        Mockito.verify(publicationsDao, Mockito.times(1)).hasPublication("pub");
+        Mockito.verify(dao).addSubscriptions(Collections.singletonMap("sub-valid", valid));
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception {
+        SubscriptionImpl disabled = createSubscription("sub-disabled", null, null);
+        disabled.setEnabled(false);
+        List<Subscription> all = Collections.singletonList(disabled);
+        Mockito.when(dao.getSubscriptions(null)).thenReturn(new QueryResult<>(all, all.size()));
+        Mockito.when(dao.hasSubscription(Mockito.anyString())).thenReturn(true);
+        Mockito.when(config.getParameterAsBoolean("subscriptions.bootstrap.async")).thenReturn(Optional.of(false));
+        Mockito.when(filterLogic.pause(Mockito.anyString())).thenReturn(true);
+        Mockito.when(filterLogic.resume(Mockito.anyString())).thenReturn(true);
+
+        /*
+        * disabled subscriptions are registered paused
+        */
+        manager.afterPropertiesSet();
+        Mockito.verify(filterLogic).internalSubscribe(disabled, null);
+        Mockito.verify(filterLogic).pause("sub-disabled");
+
+        manager.updateSubscription(createUpdate("sub-disabled", true), null);
+        Mockito.verify(dao).updateStatus("sub-disabled", true);
+        Mockito.verify(filterLogic).resume("sub-disabled");
+
+        manager.updateSubscription(createUpdate("sub-disabled", false), null);
+        Mockito.verify(filterLogic, Mockito.times(2)).pause("sub-disabled");
+    }
+
+    @Test
+    public void testConditionalUpdate() throws Exception {
+        Mockito.when(dao.getSubscriptionVersion("sub")).thenReturn(OptionalLong.of(7));
+
+        manager.updateSubscription(createUpdate("sub", true), null, 7);
+        Mockito.verify(dao).updateStatus("sub", true);
+
+        try {
+            manager.updateSubscription(createUpdate("sub", false), null, 6);
+            Assertions.fail("outdated version accepted");
+        } catch (SubscriptionModifiedException e) {
+            Mockito.verify(dao, Mockito.never()).updateStatus("sub", false);
+        }
+    }
+
+    @Test
+    public void testNotReadyWhileBootstrapping() throws Exception {
+        MatcherAssert.assertThat(manager.getBootstrapStatus().isReady(), CoreMatchers.is(false));
+
+        SubscriptionImpl registered = createSubscription("sub-registered", null, null);
+        SubscriptionImpl blocking = createSubscription("sub-blocking", null, null);
+        SubscriptionImpl failing = createSubscription("sub-failing", null, null);
+        List<Subscription> all = Arrays.asList(registered, blocking, failing);
+        Mockito.when(dao.getSubscriptions(null)).thenReturn(new QueryResult<>(all, all.size()));
+        Mockito.when(dao.hasSubscription(Mockito.anyString())).thenReturn(true);
+        Mockito.when(filterLogic.internalSubscribe(Mockito.eq(failing), Mockito.any()))
+                .thenThrow(new InvalidSubscriptionException("rejected"));
+        Mockito.when(config.getParameterAsBoolean("subscriptions.bootstrap.async")).thenReturn(Optional.of(true));
+        Mockito.when(config.getParameterAsInt("subscriptions.bootstrap.threads")).thenReturn(Optional.of(1));
+
+        /*
+        * the single bootstrap thread blocks on the second subscription
+        */
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(dao.hasSubscription("sub-blocking")).thenAnswer(invocation -> {
+            entered.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+
+        manager.afterPropertiesSet();
+        MatcherAssert.assertThat(entered.await(5, TimeUnit.SECONDS), CoreMatchers.is(true));
+
+        BootstrapStatus status = manager.getBootstrapStatus();
+        MatcherAssert.assertThat(status.isReady(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(status.getTotal(), CoreMatchers.is(3));
+        MatcherAssert.assertThat(status.getRegistered(), CoreMatchers.is(1));
+        MatcherAssert.assertThat(status.getFailed(), CoreMatchers.is(0));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!manager.getBootstrapStatus().isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        status = manager.getBootstrapStatus();
+        MatcherAssert.assertThat(status.isReady(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(status.getRegistered(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(status.getFailed(), CoreMatchers.is(1));
+    }
+
+    private static SubscriptionUpdate createUpdate(String id, boolean enabled) {
+        return new SubscriptionUpdate() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public void setId(String id) {
+            }
+
+            @Override
+            public String getEndOfLife() {
+                return null;
+            }
+
+            @Override
+            public boolean getEnabled() {
+                return enabled;
+            }
+        };
+    }
+
+    private static SubscriptionImpl createSubscription(String id, String template, DateTime endOfLife) {
+        SubscriptionImpl sub = new SubscriptionImpl(id, null, null);
+        sub.setPublicationId("pub");
+        sub.setEndOfLife(endOfLife);
+        if (template != null) {
+            sub.setTemplate(new TemplateInstance(template, Collections.emptyMap()));
+        }
+        return sub;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.subverse.termination.Terminatable;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class TimingWheelTerminationSchedulerTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private TimingWheelTerminationScheduler scheduler;
+    private List<String> terminated;
+
+    @BeforeEach
+    public void setUp() {
+        /*
+        * a small wheel so that overflow wheels are used
+        */
+        this.scheduler = new TimingWheelTerminationScheduler(TICK_MILLIS, 8);
+        this.terminated = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.scheduler.shutdown();
+    }
+
+    @Test
+    public void testTerminationOrder() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        DateTime now = DateTime.now();
+        this.scheduler.scheduleTermination(new TestTerminatable("c", now.plusMillis(900), latch));
+        this.scheduler.scheduleTermination(new TestTerminatable("a", now.plusMillis(50), latch));
+        this.scheduler.scheduleTermination(new TestTerminatable("b", now.plusMillis(300), latch));
+
+        MatcherAssert.assertThat(latch.await(5, TimeUnit.SECONDS), CoreMatchers.is(true));
+        MatcherAssert.assertThat(this.terminated, CoreMatchers.hasItems("a", "b", "c"));
+        MatcherAssert.assertThat(this.terminated.indexOf("a") < this.terminated.indexOf("b"), CoreMatchers.is(true));
+        MatcherAssert.assertThat(this.terminated.indexOf("b") < this.terminated.indexOf("c"), CoreMatchers.is(true));
+        MatcherAssert.assertThat(this.scheduler.size(), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void testCancelAndReschedule() throws Exception {
+        CountDownLatch cancelledLatch = new CountDownLatch(1);
+        CountDownLatch movedLatch = new CountDownLatch(1);
+        DateTime now = DateTime.now();
+        TestTerminatable cancelled = new TestTerminatable("cancelled", now.plusMillis(100), cancelledLatch);
+        TestTerminatable moved = new TestTerminatable("moved", now.plusMillis(100), movedLatch);
+        this.scheduler.scheduleTermination(cancelled);
+        this.scheduler.scheduleTermination(moved);
+        MatcherAssert.assertThat(this.scheduler.size(), CoreMatchers.is(2));
+
+        this.scheduler.cancelTermination(cancelled);
+        moved.endOfLife = now.plusMillis(500);
+        this.scheduler.scheduleTermination(moved);
+        MatcherAssert.assertThat(this.scheduler.size(), CoreMatchers.is(1));
+
+        /*
+        * the cancelled one was due before the moved one, so it would have
+        * been terminated by now. The moved one may be terminated up to a
+        * tick early, but not at its former end of life.
+        */
+        MatcherAssert.assertThat(movedLatch.await(5, TimeUnit.SECONDS), CoreMatchers.is(true));
+        MatcherAssert.assertThat(cancelledLatch.getCount(), CoreMatchers.is(1L));
+        MatcherAssert.assertThat(this.terminated, CoreMatchers.is(Collections.singletonList("moved")));
+        MatcherAssert.assertThat(moved.terminatedAt >= moved.endOfLife.getMillis() - TICK_MILLIS,
+                CoreMatchers.is(true));
+        MatcherAssert.assertThat(this.scheduler.size(), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void testPastEndOfLife() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        this.scheduler.scheduleTermination(new TestTerminatable("past", DateTime.now().minusHours(1), latch));
+
+        MatcherAssert.assertThat(latch.await(5, TimeUnit.SECONDS), CoreMatchers.is(true));
+        MatcherAssert.assertThat(this.scheduler.size(), CoreMatchers.is(0));
+    }
+
+    private class TestTerminatable implements Terminatable {
+
+        private final String id;
+        private final CountDownLatch latch;
+        private DateTime endOfLife;
+        private volatile long terminatedAt;
+
+        TestTerminatable(String id, DateTime endOfLife, CountDownLatch latch) {
+            this.id = id;
+            this.endOfLife = endOfLife;
+            this.latch = latch;
+        }
+
+        @Override
+        public void terminate() {
+            this.terminatedAt = System.currentTimeMillis();
+            terminated.add(this.id);
+            this.latch.countDown();
+        }
+
+        @Override
+        public DateTime getEndOfLife() {
+            return this.endOfLife;
+        }
+
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -28,11 +28,16 @@
 package org.n52.eventing.rest.templates;
 
 import org.n52.eventing.rest.model.impl.TemplateDefinitionImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.n52.eventing.rest.parameters.ParameterInstance;
 
 /**
@@ -52,6 +57,107 @@ public class AbstractInstanceGeneratorTest {
         ));
     }
 
+    @Test
+    public void testEscapingAndMissingValues() {
+        TemplateDefinitionImpl t = createTemplate();
+        List<ParameterInstance> values = new ArrayList<>();
+        values.add(new ParameterInstance("parama", "a<b", "text"));
+
+        MatcherAssert.assertThat(new FilterInstanceGenerator(true).generateFilterInstance(t, values), CoreMatchers.is(
+                "<greaterThan><prop>a&lt;b</prop><val>${paramb}</val></greaterThan>"
+        ));
+        MatcherAssert.assertThat(new FilterInstanceGenerator().generateFilterInstance(t, values), CoreMatchers.is(
+                "<greaterThan><prop>a<b</prop><val>${paramb}</val></greaterThan>"
+        ));
+    }
+
+    @Test
+    public void testChangedTemplate() {
+        FilterInstanceGenerator aig = new FilterInstanceGenerator();
+        TemplateDefinitionImpl t = createTemplate();
+        t.setId("greater");
+        aig.generateFilterInstance(t, createValues());
+
+        /*
+        * a reloaded template with the same id is compiled again
+        */
+        t.setDefinition(new Definition("<lessThan><val>${paramb}</val></lessThan>", ""));
+        MatcherAssert.assertThat(aig.generateFilterInstance(t, createValues()), CoreMatchers.is(
+                "<lessThan><val>22.03</val></lessThan>"
+        ));
+    }
+
+    @Test
+    public void testLargeTemplate() throws Exception {
+        TemplateDefinitionImpl t = loadLargeTemplate();
+
+        MatcherAssert.assertThat(new FilterInstanceGenerator().generateFilterInstance(t, createLargeValues()),
+                CoreMatchers.is(generateByReplacing(t, createLargeValues())));
+    }
+
+    /**
+     * compares the compiled templates with replacing the placeholders one by
+     * one. Run with <code>-Dbenchmarks=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    public void benchmarkLargeTemplate() throws Exception {
+        TemplateDefinitionImpl t = loadLargeTemplate();
+        t.setId("large");
+        List<ParameterInstance> values = createLargeValues();
+        FilterInstanceGenerator aig = new FilterInstanceGenerator();
+        int iterations = 20000;
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                generateByReplacing(t, values);
+            }
+            long replacing = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                aig.generateFilterInstance(t, values);
+            }
+            long compiled = System.nanoTime() - start;
+
+            System.out.println(String.format("%d instances of %d chars: replacing %d ms, compiled %d ms",
+                    iterations, aig.generateFilterInstance(t, values).length(),
+                    replacing / 1000000, compiled / 1000000));
+        }
+    }
+
+    /**
+     * the former implementation, unescaping and replacing per call
+     */
+    private static String generateByReplacing(TemplateDefinitionImpl t, Collection<ParameterInstance> values) {
+        String content = (String) t.getDefinition().getContent();
+        if (content.contains("&lt;")) {
+            content = StringEscapeUtils.unescapeXml(content);
+        }
+
+        for (ParameterInstance param : values) {
+            content = content.replace(String.format("${%s}", param.getName()), param.getValue().toString());
+        }
+
+        return content;
+    }
+
+    private TemplateDefinitionImpl loadLargeTemplate() throws Exception {
+        return new ObjectMapper().readValue(Paths.get(getClass()
+                .getResource("/templates-test/overshootUndershoot.json").toURI()).toFile(),
+                TemplateDefinitionImpl.class);
+    }
+
+    private List<ParameterInstance> createLargeValues() {
+        List<ParameterInstance> result = new ArrayList<>();
+
+        result.add(new ParameterInstance("observedProperty", "Wasserstand", "text"));
+        result.add(new ParameterInstance("thresholdValue", 55.2, "number"));
+
+        return result;
+    }
+
     private TemplateDefinitionImpl createTemplate() {
         TemplateDefinitionImpl t = new TemplateDefinitionImpl();
         t.setDefinition(new Definition("<greaterThan><prop>${parama}</prop><val>${paramb}</val></greaterThan>", ""));
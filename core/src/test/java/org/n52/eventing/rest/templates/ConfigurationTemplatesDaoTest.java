@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -31,11 +31,19 @@ import org.n52.eventing.rest.model.impl.TemplateDefinitionImpl;
 import org.n52.eventing.rest.parameters.ParameterDefinition;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.n52.eventing.rest.Configuration;
 
 /**
  *
@@ -60,4 +68,52 @@ public class ConfigurationTemplatesDaoTest {
         MatcherAssert.assertThat(thresholdValue.getPattern(), CoreMatchers.is("regex"));
     }
 
+    @Test
+    public void testReloading(@TempDir Path dir) throws Exception {
+        Path source = Paths.get(getClass().getResource("/templates-test/overshootUndershoot.json").toURI());
+        String content = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+        Files.write(dir.resolve("overshootUndershoot.json"), content.getBytes(StandardCharsets.UTF_8));
+
+        Configuration config = Mockito.mock(Configuration.class);
+        Mockito.when(config.getParameter("templateDirectory")).thenReturn(Optional.of(dir.toString()));
+        Mockito.when(config.getParameterAsBoolean("templates.watch")).thenReturn(Optional.of(true));
+
+        ConfigurationTemplatesDao dao = new ConfigurationTemplatesDao(config);
+        dao.afterPropertiesSet();
+
+        try {
+            MatcherAssert.assertThat(dao.hasTemplate("overshootUndershoot"), CoreMatchers.is(true));
+            long loaded = dao.getVersion();
+
+            /*
+            * added, changed and removed files are picked up
+            */
+            Files.write(dir.resolve("copy.json"), content.replace("\"overshootUndershoot\"", "\"copy\"")
+                    .getBytes(StandardCharsets.UTF_8));
+            awaitCondition(() -> dao.hasTemplate("copy"));
+            MatcherAssert.assertThat(dao.getVersion() > loaded, CoreMatchers.is(true));
+
+            Files.write(dir.resolve("copy.json"), content.replace("\"overshootUndershoot\"", "\"renamed\"")
+                    .getBytes(StandardCharsets.UTF_8));
+            awaitCondition(() -> dao.hasTemplate("renamed") && !dao.hasTemplate("copy"));
+
+            Files.delete(dir.resolve("overshootUndershoot.json"));
+            awaitCondition(() -> !dao.hasTemplate("overshootUndershoot"));
+            MatcherAssert.assertThat(dao.getTemplates().getTotalHits(), CoreMatchers.is(1L));
+        }
+        finally {
+            dao.destroy();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assertions.fail("condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+
 }
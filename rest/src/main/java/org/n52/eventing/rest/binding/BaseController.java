@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -29,6 +29,10 @@ package org.n52.eventing.rest.binding;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -36,7 +40,10 @@ import javax.servlet.http.HttpServletResponse;
 import org.n52.eventing.rest.binding.exception.BadQueryParameterException;
 import org.n52.eventing.rest.binding.exception.BadRequestException;
 import org.n52.eventing.rest.binding.exception.ExceptionResponse;
+import org.n52.eventing.rest.RequestContext;
+import org.n52.eventing.rest.Versioned;
 import org.n52.eventing.rest.binding.exception.InternalServerException;
+import org.n52.eventing.rest.binding.exception.PreconditionFailedException;
 import org.n52.eventing.rest.binding.exception.ResourceNotFoundException;
 import org.n52.eventing.rest.binding.exception.WebException;
 import org.slf4j.Logger;
@@ -46,6 +53,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -58,6 +66,11 @@ public abstract class BaseController {
     private static final String REFER_TO_API_SYNTAX = "Refer to the API documentation and check parameter "
             + "value against required syntax!";
 
+    /*
+    * versions start over with every run, so entity tags carry its start time
+    */
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
     private static final String INVALID_REQUEST_BODY = "Check the request body which has been sent to the "
             + "server. Probably it is not valid.";
 
@@ -74,6 +87,11 @@ public abstract class BaseController {
             writeExceptionResponse((WebException) e, response, HttpStatus.NOT_FOUND);
         }
 
+        @ExceptionHandler(value = PreconditionFailedException.class)
+        public void handle412(Exception e, HttpServletRequest request, HttpServletResponse response) {
+            writeExceptionResponse((WebException) e, response, HttpStatus.PRECONDITION_FAILED);
+        }
+
         @ExceptionHandler(value = InternalServerException.class)
         public void handle500(Exception e, HttpServletRequest request, HttpServletResponse response) {
             writeExceptionResponse((WebException) e, response, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -117,6 +135,70 @@ public abstract class BaseController {
         }
     }
 
+    /**
+     * Answers a conditional request for a representation of a
+     * {@link Versioned} source and sets the ETag and Last-Modified headers.
+     * The representation is identified by the URL and the parameters of the
+     * request context.
+     *
+     * @param request the request
+     * @param source the source of the representation
+     * @param context the context of the request
+     * @return true if the copy of the client is current. The response then is
+     * <code>304</code>, no representation has to be created.
+     */
+    protected boolean checkNotModified(WebRequest request, Object source, RequestContext context) {
+        if (!(source instanceof Versioned)) {
+            return false;
+        }
+
+        Map<String, String> parameters = new TreeMap<>();
+        if (context.getParameters() != null) {
+            context.getParameters().forEach((String k, String[] v) -> parameters.put(k, String.join(",", v)));
+        }
+
+        Versioned versioned = (Versioned) source;
+        String variant = context.getFullUrl() + parameters;
+        return request.checkNotModified(createETag(versioned.getVersion(), variant), versioned.getLastModified());
+    }
+
+    /**
+     * @param version the version of the resource
+     * @param variant identifies the representation, or null if there is only
+     * one
+     * @return a strong entity tag
+     */
+    protected String createETag(long version, String variant) {
+        StringBuilder result = new StringBuilder("\"").append(EPOCH).append('-')
+                .append(Long.toString(version, 36));
+        if (variant != null) {
+            result.append('-').append(Integer.toString(variant.hashCode() & Integer.MAX_VALUE, 36));
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * @param ifMatch the value of an If-Match header
+     * @return the versions of the tags created by
+     * {@link #createETag(long, String)} without variant in this run. Weak
+     * and foreign tags are skipped.
+     */
+    protected Set<Long> parseVersions(String ifMatch) {
+        Set<Long> result = new HashSet<>();
+        String prefix = "\"" + EPOCH + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    result.add(Long.parseLong(tag.substring(prefix.length(), tag.length() - 1), 36));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Not a version tag: {}", tag);
+                }
+            }
+        }
+        return result;
+    }
+
     protected ObjectMapper createObjectMapper() {
         return new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
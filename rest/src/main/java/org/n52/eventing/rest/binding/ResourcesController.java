@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -80,6 +80,10 @@ public class ResourcesController {
                 String.format("%s/%s", fullUrl, UrlSettings.NOTIFICATIONS_RESOURCE));
         resources.put(UrlSettings.EVENTLOG_RESOURCE,
                 String.format("%s/%s", fullUrl, UrlSettings.EVENTLOG_RESOURCE));
+        resources.put(UrlSettings.STATISTICS_RESOURCE,
+                String.format("%s/%s", fullUrl, UrlSettings.STATISTICS_RESOURCE));
+        resources.put(UrlSettings.STATUS_RESOURCE,
+                String.format("%s/%s", fullUrl, UrlSettings.STATUS_RESOURCE));
 
         if (customResourceDefinitions.isPresent()) {
             customResourceDefinitions.get().getCustomResources().stream()
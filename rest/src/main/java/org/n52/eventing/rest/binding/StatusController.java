@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.binding;
+
+import org.n52.eventing.rest.UrlSettings;
+import org.n52.eventing.rest.subscriptions.BootstrapStatus;
+import org.n52.eventing.rest.subscriptions.SubscriptionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Reports whether the persisted subscriptions have been registered after a
+ * restart. Answers with <code>503</code> until then, so that it can serve as
+ * a readiness probe.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+@RestController
+@RequestMapping(value = UrlSettings.API_V1_BASE+"/"+UrlSettings.STATUS_RESOURCE,
+        produces = {"application/json"})
+public class StatusController extends BaseController {
+
+    @Autowired
+    private SubscriptionManager manager;
+
+    @RequestMapping(value = "", method = GET)
+    public ResponseEntity<BootstrapStatus> getStatus() {
+        BootstrapStatus status = manager.getBootstrapStatus();
+        return ResponseEntity.status(status.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(status);
+    }
+
+}
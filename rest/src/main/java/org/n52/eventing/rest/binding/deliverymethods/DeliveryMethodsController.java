@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -50,6 +50,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.n52.eventing.rest.deliverymethods.DeliveryMethodsService;
 
 /**
@@ -71,7 +72,11 @@ public class DeliveryMethodsController extends BaseController {
     private PaginationFactory pageFactory;
 
     @RequestMapping("")
-    public ResourceCollectionWithMetadata<ResourceCollection> getDeliveryMethods() throws IOException, URISyntaxException, InvalidPaginationException {
+    public ResourceCollectionWithMetadata<ResourceCollection> getDeliveryMethods(WebRequest request) throws IOException, URISyntaxException, InvalidPaginationException {
+        if (checkNotModified(request, this.dao, context)) {
+            return null;
+        }
+
         String fullUrl = context.getFullUrl();
         List<ResourceCollection> list = new ArrayList<>();
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -29,13 +29,23 @@ package org.n52.eventing.rest.binding.eventlog;
 
 import com.fasterxml.jackson.annotation.JsonView;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.joda.time.DateTime;
 import org.n52.eventing.rest.InvalidPaginationException;
 import org.n52.eventing.rest.Pagination;
 import org.n52.eventing.rest.PaginationFactory;
@@ -44,20 +54,33 @@ import org.n52.eventing.rest.RequestContext;
 import org.n52.eventing.rest.binding.BaseController;
 import org.n52.eventing.rest.binding.RequestUtils;
 import org.n52.eventing.rest.binding.ResourceNotAvailableException;
+import org.n52.eventing.rest.binding.exception.BadRequestException;
 import org.n52.eventing.rest.binding.exception.concrete.ResourceWithIdNotFoundException;
 import org.n52.eventing.rest.UrlSettings;
 import org.n52.eventing.rest.ResourceCollectionWithMetadata;
 import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.eventlog.ByteBufferStreamable;
+import org.n52.eventing.rest.eventlog.CompressedStreamable;
 import org.n52.eventing.rest.eventlog.EventLogStore;
+import org.n52.eventing.rest.eventlog.EventLogUsage;
+import org.n52.eventing.rest.eventlog.PayloadCompressor;
 import org.n52.eventing.rest.model.Subscription;
 import org.n52.eventing.rest.model.views.Views;
 import org.n52.eventing.rest.subscriptions.UnknownSubscriptionException;
 import org.n52.subverse.delivery.Streamable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.n52.eventing.rest.subscriptions.SubscriptionsService;
 
 /**
@@ -69,6 +92,8 @@ import org.n52.eventing.rest.subscriptions.SubscriptionsService;
         produces = {"application/json"})
 public class EventLogController extends BaseController {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogController.class.getName());
+
     @Autowired
     private SubscriptionsService subDao;
 
@@ -84,6 +109,12 @@ public class EventLogController extends BaseController {
     @Autowired
     private PaginationFactory pageFactory;
 
+    @Autowired(required = false)
+    private PayloadCompressor compressor;
+
+    @Autowired
+    private EventStreamRegistry streams;
+
 
     @JsonView(Views.EventOverview.class)
     @RequestMapping("")
@@ -92,11 +123,13 @@ public class EventLogController extends BaseController {
         final String fullUrl = context.getFullUrl();
         Map<String, String[]> query = context.getParameters();
         Pagination page = pageFactory.fromQuery(query);
+        DateTime since = parseTime(query, "since");
+        DateTime until = parseTime(query, "until");
 
         RequestContext.storeInThreadLocal(context);
 
         try {
-            QueryResult<EventHolder> result = store.getAllEvents(page);
+            QueryResult<EventHolder> result = store.getAllEvents(since, until, page);
             result.setResult(result.getResult().stream()
                 .map((EventHolder t) -> {
                     String id = t.getId();
@@ -124,10 +157,12 @@ public class EventLogController extends BaseController {
         final String fullUrl = context.getFullUrl();
         Map<String, String[]> query = context.getParameters();
         Pagination page = pageFactory.fromQuery(query);
+        DateTime since = parseTime(query, "since");
+        DateTime until = parseTime(query, "until");
 
         Subscription subscription = subDao.getSubscription(subId);
 
-        QueryResult<EventHolder> result = store.getEventsForSubscription(subscription, page);
+        QueryResult<EventHolder> result = store.getEventsForSubscription(subscription, since, until, page);
         result.setResult(result.getResult().stream()
                 .map((EventHolder t) -> {
                     String id = t.getId();
@@ -188,24 +223,195 @@ public class EventLogController extends BaseController {
         Optional<Streamable> streamable = holder.get().streamableObject();
         if (streamable.isPresent()) {
             Streamable obj = streamable.get();
+            HttpServletRequest req = requestUtils.resolveRequestObject();
             HttpServletResponse resp = requestUtils.resolveResponseObject();
-            String ct = obj.getContentType();
-            resp.setContentType(ct);
-            resp.setStatus(200);
+            String etagVariant = "";
 
-            InputStream is = obj.asStream();
-            try (ServletOutputStream os = resp.getOutputStream()) {
-                byte[] buffer = new byte[1024];
-                int count;
-                while ((count = is.read(buffer)) > 0) {
-                    os.write(buffer, 0, count);
-                    os.flush();
+            /*
+            * compressed content is passed through if the client accepts it
+            */
+            if (obj instanceof CompressedStreamable) {
+                CompressedStreamable compressed = (CompressedStreamable) obj;
+                resp.addHeader("Vary", "Accept-Encoding");
+                if (acceptsEncoding(compressed.getContentEncoding())) {
+                    resp.setHeader("Content-Encoding", compressed.getContentEncoding());
+                    etagVariant = "-" + compressed.getContentEncoding();
+                    obj = compressed.getEncoded();
                 }
             }
+
+            /*
+            * event content never changes, so the id is a strong validator
+            */
+            String etag = String.format("\"%s%s\"", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(eventId.getBytes(StandardCharsets.UTF_8)), etagVariant);
+            if (new ServletWebRequest(req, resp).checkNotModified(etag)) {
+                return;
+            }
+
+            ByteBuffer content = ByteBufferStreamable.toByteBuffer(obj);
+            int length = content.remaining();
+            resp.setContentType(obj.getContentType());
+            resp.setHeader("Accept-Ranges", "bytes");
+
+            HttpRange range = resolveRange(req, etag);
+            if (range != null) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                if (start >= length || start > end) {
+                    resp.setHeader("Content-Range", String.format("bytes */%s", length));
+                    resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", String.format("bytes %s-%s/%s", start, end, length));
+                content.position(content.position() + (int) start);
+                content.limit(content.position() + (int) (end - start + 1));
+            }
+            else {
+                resp.setStatus(HttpServletResponse.SC_OK);
+            }
+
+            resp.setContentLength(content.remaining());
+            try (ServletOutputStream os = resp.getOutputStream()) {
+                write(content, os);
+            }
         }
         else {
             throw new ResourceNotAvailableException("No content for this event available");
         }
     }
 
+    /**
+     * @return the single requested range, or null if the full content is to
+     * be sent. Multiple ranges are not supported and answered with the full
+     * content, as permitted by RFC 7233.
+     */
+    private HttpRange resolveRange(HttpServletRequest req, String etag) {
+        String header = req.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+
+        String ifRange = req.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(etag)) {
+            return null;
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        }
+        catch (IllegalArgumentException e) {
+            LOG.debug("Ignoring invalid Range header '{}': {}", header, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(ByteBuffer content, OutputStream os) throws IOException {
+        if (content.hasArray()) {
+            os.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            return;
+        }
+
+        /*
+        * direct and mapped buffers are copied in large chunks
+        */
+        byte[] chunk = new byte[Math.min(content.remaining(), 64 * 1024)];
+        while (content.hasRemaining()) {
+            int count = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, count);
+            os.write(chunk, 0, count);
+        }
+    }
+
+    /**
+     * streams new events as <code>text/event-stream</code>. A client resuming
+     * with <code>Last-Event-ID</code> first receives the retained events that
+     * are newer than the given one.
+     */
+    @RequestMapping(value = "/stream", method = GET, produces = "text/event-stream")
+    public SseEmitter streamEvents(@RequestParam(value = "subscription", required = false) String subId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId)
+            throws UnknownSubscriptionException {
+        Subscription subscription = subId != null ? subDao.getSubscription(subId) : null;
+
+        String eventsUrl = String.format("%s/%s", context.getBaseApiUrl(), UrlSettings.EVENTLOG_RESOURCE);
+        return streams.open(subscription != null ? subscription.getId() : null, eventsUrl,
+                () -> resolveReplay(subscription, lastEventId));
+    }
+
+    /**
+     * @return the retained events newer than the given one, oldest first
+     */
+    private List<EventHolder> resolveReplay(Subscription subscription, String lastEventId) {
+        if (lastEventId == null) {
+            return Collections.emptyList();
+        }
+
+        Pagination page = pageFactory.create(0, streams.getBufferSize());
+        QueryResult<EventHolder> retained = subscription != null
+                ? store.getEventsForSubscription(subscription, page)
+                : store.getAllEvents(page);
+
+        /*
+        * the page is ordered newest first
+        */
+        List<EventHolder> replay = new ArrayList<>();
+        for (EventHolder eh : retained.getResult()) {
+            if (eh.getId().equals(lastEventId)) {
+                break;
+            }
+            replay.add(eh);
+        }
+        Collections.reverse(replay);
+        return replay;
+    }
+
+    @RequestMapping(value = "/statistics/compression", method = GET)
+    public Map<String, PayloadCompressor.CompressionStatistics> getCompressionStatistics() {
+        if (compressor == null) {
+            return Collections.emptyMap();
+        }
+        return compressor.getStatistics();
+    }
+
+    @RequestMapping(value = "/statistics/usage", method = GET)
+    public Map<String, EventLogUsage> getUsage() {
+        return new TreeMap<>(store.getUsage());
+    }
+
+    /**
+     * @return the ISO 8601 time given as query parameter, or null if absent
+     */
+    private DateTime parseTime(Map<String, String[]> query, String key) {
+        if (query == null || !query.containsKey(key) || query.get(key).length == 0) {
+            return null;
+        }
+
+        String value = query.get(key)[0];
+        try {
+            return DateTime.parse(value);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(String.format("Invalid ISO 8601 time for '%s': %s", key, value), e);
+        }
+    }
+
+    private boolean acceptsEncoding(String encoding) {
+        HttpServletRequest req = requestUtils.resolveRequestObject();
+        Enumeration<String> headers = req.getHeaders("Accept-Encoding");
+        while (headers != null && headers.hasMoreElements()) {
+            for (String candidate : headers.nextElement().split(",")) {
+                String[] parts = candidate.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(encoding)
+                        && !(parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
 }
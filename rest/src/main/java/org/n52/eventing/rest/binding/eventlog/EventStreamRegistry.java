@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.binding.eventlog;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.n52.eventing.rest.Configuration;
+import org.n52.eventing.rest.eventlog.EventLogBroadcaster;
+import org.n52.eventing.rest.eventlog.EventLogListener;
+import org.n52.eventing.rest.model.EventHolder;
+import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.EventHolderImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Keeps the open <code>text/event-stream</code> connections on the event
+ * log. New events are queued per connection and written by a small pool of
+ * dispatcher threads, so a slow client never blocks the delivering thread.
+ * A connection whose queue overflows is closed, the client is expected to
+ * reconnect with a <code>Last-Event-ID</code>.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class EventStreamRegistry implements EventLogListener, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventStreamRegistry.class.getName());
+
+    @Autowired
+    private Configuration config;
+
+    @Autowired
+    private EventLogBroadcaster broadcaster;
+
+    private int bufferSize;
+    private long timeoutMillis;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService keepAlive;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        this.bufferSize = this.config.getParameterAsInt("eventLog.stream.bufferSize").orElse(256);
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(
+                this.config.getParameterAsInt("eventLog.stream.timeoutMinutes").orElse(30));
+        int keepAliveSeconds = this.config.getParameterAsInt("eventLog.stream.keepAliveSeconds").orElse(30);
+
+        this.dispatcher = Executors.newFixedThreadPool(
+                this.config.getParameterAsInt("eventLog.stream.dispatcherThreads").orElse(4),
+                new DaemonThreadFactory("event-stream-dispatcher"));
+        this.keepAlive = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("event-stream-keepalive"));
+        this.keepAlive.scheduleWithFixedDelay(() -> {
+            this.connections.forEach(c -> c.keepAlive());
+        }, keepAliveSeconds, keepAliveSeconds, TimeUnit.SECONDS);
+
+        this.broadcaster.addListener(this);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        this.broadcaster.removeListener(this);
+        this.keepAlive.shutdownNow();
+        this.dispatcher.shutdownNow();
+        this.connections.forEach(c -> c.emitter.complete());
+        this.connections.clear();
+    }
+
+    /**
+     * @return the maximum number of events buffered per connection, and
+     * replayed on resume
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * opens a new stream
+     *
+     * @param subscriptionId the subscription to follow, null for all
+     * @param eventsUrl the base URL of the event resources
+     * @param replay provides the events to send before any new ones, oldest
+     * first. It is called after the connection is registered.
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter open(String subscriptionId, String eventsUrl, Supplier<List<EventHolder>> replay) {
+        SseEmitter emitter = new SseEmitter(this.timeoutMillis);
+        Connection c = new Connection(emitter, subscriptionId, eventsUrl);
+        emitter.onCompletion(() -> connections.remove(c));
+        emitter.onTimeout(() -> connections.remove(c));
+        emitter.onError(e -> connections.remove(c));
+
+        /*
+        * register before the replay is queried, so that an event arriving
+        * in between is queued and not lost. Queued events that are part of
+        * the replay are dropped while draining.
+        */
+        this.connections.add(c);
+        try {
+            c.start(replay.get());
+        }
+        catch (RuntimeException e) {
+            c.close();
+            throw e;
+        }
+        return emitter;
+    }
+
+    @Override
+    public void onEvent(Subscription subscription, EventHolder eh) {
+        for (Connection c : this.connections) {
+            if (c.subscriptionId == null || c.subscriptionId.equals(subscription.getId())) {
+                c.offer(eh);
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    private class Connection {
+
+        private final SseEmitter emitter;
+        private final String subscriptionId;
+        private final String eventsUrl;
+        private final BlockingQueue<EventHolder> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private List<EventHolder> replay;
+        private final Set<String> replayedIds = new HashSet<>();
+        private volatile boolean started;
+        private volatile boolean closed;
+
+        Connection(SseEmitter emitter, String subscriptionId, String eventsUrl) {
+            this.emitter = emitter;
+            this.subscriptionId = subscriptionId;
+            this.eventsUrl = eventsUrl;
+        }
+
+        /**
+         * sets the replay and starts draining. Events offered before are
+         * only queued.
+         */
+        void start(List<EventHolder> events) {
+            this.replay = events;
+            events.forEach(eh -> this.replayedIds.add(eh.getId()));
+            this.started = true;
+            schedule();
+        }
+
+        void offer(EventHolder eh) {
+            if (closed) {
+                return;
+            }
+
+            if (!queue.offer(eh)) {
+                LOG.info("Closing event stream of a slow consumer, {} events pending", queue.size());
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (started && scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                /*
+                * the replay is only touched by the draining thread
+                */
+                if (replay != null) {
+                    for (EventHolder eh : replay) {
+                        send(eh);
+                    }
+                    replay = null;
+                }
+
+                EventHolder eh;
+                while (!closed && (eh = queue.poll()) != null) {
+                    if (!replayedIds.contains(eh.getId())) {
+                        send(eh);
+                    }
+                }
+            }
+            catch (IOException | IllegalStateException e) {
+                LOG.debug("Event stream closed: {}", e.getMessage());
+                close();
+            }
+            finally {
+                scheduled.set(false);
+            }
+
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private synchronized void send(EventHolder eh) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(eh.getId())
+                    .data(toMessage(eh), MediaType.APPLICATION_JSON));
+        }
+
+        synchronized void keepAlive() {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+            catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            connections.remove(this);
+            queue.clear();
+            emitter.complete();
+        }
+
+        private Map<String, Object> toMessage(EventHolder eh) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", eh.getId());
+            result.put("href", String.format("%s/%s", eventsUrl, eh.getId()));
+            if (eh.streamableObject() != null && eh.streamableObject().isPresent()) {
+                result.put("content", String.format("%s/%s/content", eventsUrl, eh.getId()));
+            }
+            if (eh instanceof EventHolderImpl) {
+                EventHolderImpl impl = (EventHolderImpl) eh;
+                result.put("timestamp", impl.getTimestamp());
+                result.put("label", impl.getLabel());
+                if (impl.subscription() != null) {
+                    result.put("subscription", impl.subscription().getId());
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        }
+
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, String.format("%s-%s", prefix, count.incrementAndGet()));
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
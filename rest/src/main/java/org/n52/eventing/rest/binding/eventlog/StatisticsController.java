@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.binding.eventlog;
+
+import java.util.Collections;
+import java.util.Map;
+import org.n52.eventing.rest.UrlSettings;
+import org.n52.eventing.rest.binding.BaseController;
+import org.n52.eventing.rest.binding.exception.concrete.ResourceWithIdNotFoundException;
+import org.n52.eventing.rest.publications.PublicationsService;
+import org.n52.eventing.rest.statistics.CacheStatistics;
+import org.n52.eventing.rest.statistics.MatchStatistics;
+import org.n52.eventing.rest.statistics.RateStatistics;
+import org.n52.eventing.rest.subscriptions.FilterLogic;
+import org.n52.eventing.rest.subscriptions.SubscriptionsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Provides the match rates of subscriptions and the message and match rates
+ * of publications, per minute for the last hour and per hour for the last two
+ * days, and the usage of the cache of parsed filters.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+@RestController
+@RequestMapping(value = UrlSettings.API_V1_BASE+"/"+UrlSettings.STATISTICS_RESOURCE,
+        produces = {"application/json"})
+public class StatisticsController extends BaseController {
+
+    @Autowired(required = false)
+    private MatchStatistics statistics;
+
+    @Autowired
+    private SubscriptionsService subDao;
+
+    @Autowired
+    private PublicationsService publicationsDao;
+
+    @Autowired(required = false)
+    private FilterLogic filterLogic;
+
+    @RequestMapping(value = "/" + UrlSettings.SUBSCRIPTIONS_RESOURCE, method = GET)
+    public Map<String, RateStatistics> getSubscriptionStatistics() {
+        if (statistics == null) {
+            return Collections.emptyMap();
+        }
+        return statistics.getSubscriptionStatistics();
+    }
+
+    @RequestMapping(value = "/" + UrlSettings.SUBSCRIPTIONS_RESOURCE + "/{id}", method = GET)
+    public RateStatistics getSubscriptionStatistics(@PathVariable("id") String id)
+            throws ResourceWithIdNotFoundException {
+        if (!subDao.hasSubscription(id)) {
+            throw new ResourceWithIdNotFoundException(id);
+        }
+        if (statistics == null) {
+            return new RateStatistics(null, null, System.currentTimeMillis());
+        }
+        return statistics.getSubscriptionStatistics(id)
+                .orElseGet(() -> new RateStatistics(null, null, System.currentTimeMillis()));
+    }
+
+    @RequestMapping(value = "/" + UrlSettings.PUBLICATIONS_RESOURCE, method = GET)
+    public Map<String, RateStatistics> getPublicationStatistics() {
+        if (statistics == null) {
+            return Collections.emptyMap();
+        }
+        return statistics.getPublicationStatistics();
+    }
+
+    @RequestMapping(value = "/" + UrlSettings.PUBLICATIONS_RESOURCE + "/{id}", method = GET)
+    public RateStatistics getPublicationStatistics(@PathVariable("id") String id)
+            throws ResourceWithIdNotFoundException {
+        if (!publicationsDao.hasPublication(id)) {
+            throw new ResourceWithIdNotFoundException(id);
+        }
+        if (statistics == null) {
+            return new RateStatistics(null, null, System.currentTimeMillis());
+        }
+        return statistics.getPublicationStatistics(id)
+                .orElseGet(() -> new RateStatistics(null, null, System.currentTimeMillis()));
+    }
+
+    @RequestMapping(value = "/filterCache", method = GET)
+    public CacheStatistics getFilterCacheStatistics() {
+        if (filterLogic == null) {
+            return new CacheStatistics(0, 0, 0, 0);
+        }
+        return filterLogic.getFilterCacheStatistics()
+                .orElseGet(() -> new CacheStatistics(0, 0, 0, 0));
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -52,6 +52,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 import org.n52.eventing.rest.publications.PublicationsService;
 import org.slf4j.Logger;
@@ -78,8 +79,12 @@ public class PublicationsController extends BaseController {
     private PaginationFactory pageFactory;
 
     @RequestMapping("")
-    public ResourceCollectionWithMetadata<Publication> getPublications()
+    public ResourceCollectionWithMetadata<Publication> getPublications(WebRequest request)
             throws IOException, URISyntaxException, InvalidPaginationException {
+        if (checkNotModified(request, this.dao, context)) {
+            return null;
+        }
+
         String fullUrl = context.getFullUrl();
         Map<String, String[]> query = context.getParameters();
         Pagination p = pageFactory.fromQuery(query);
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -31,13 +31,19 @@ import com.fasterxml.jackson.annotation.JsonView;
 import org.n52.eventing.rest.subscriptions.SubscriptionUpdate;
 import org.n52.eventing.rest.binding.BaseController;
 import org.n52.eventing.rest.binding.ResourceNotAvailableException;
+import org.n52.eventing.rest.binding.exception.PreconditionFailedException;
 import org.n52.eventing.rest.binding.exception.ResourceNotFoundException;
 import org.n52.eventing.rest.binding.exception.concrete.ResourceWithIdNotFoundException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.n52.eventing.rest.InvalidPaginationException;
@@ -49,24 +55,31 @@ import org.n52.eventing.rest.UrlSettings;
 import org.n52.eventing.rest.ResourceCollectionWithMetadata;
 import org.n52.eventing.security.NotAuthenticatedException;
 import org.n52.eventing.security.SecurityService;
+import org.n52.eventing.rest.subscriptions.BulkResult;
 import org.n52.eventing.rest.subscriptions.InvalidSubscriptionException;
 import org.n52.eventing.rest.subscriptions.SubscriptionManager;
+import org.n52.eventing.rest.subscriptions.SubscriptionModifiedException;
 import org.n52.eventing.rest.model.Subscription;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
 import org.n52.eventing.rest.model.views.Views;
+import org.n52.eventing.rest.subscriptions.SubscriptionUpdateInstance;
 import org.n52.eventing.rest.subscriptions.UnknownSubscriptionException;
 import org.n52.eventing.rest.users.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 import org.n52.eventing.rest.subscriptions.SubscriptionsService;
 
@@ -98,8 +111,12 @@ public class SubscriptionsController extends BaseController{
 
     @JsonView(Views.SubscriptionExpanded.class)
     @RequestMapping("")
-    public ResourceCollectionWithMetadata<Subscription> getSubscriptions()
+    public ResourceCollectionWithMetadata<Subscription> getSubscriptions(WebRequest request)
             throws IOException, URISyntaxException, InvalidPaginationException {
+        if (checkNotModified(request, this.dao, context)) {
+            return null;
+        }
+
         Map<String, String[]> query = context.getParameters();
         Pagination p = pageFactory.fromQuery(query);
 
@@ -129,14 +146,19 @@ public class SubscriptionsController extends BaseController{
 
     @JsonView(Views.SubscriptionExpanded.class)
     @RequestMapping(value = "/{item}", method = GET)
-    public Subscription getSubscription(@PathVariable("item") String id)
+    public Subscription getSubscription(@PathVariable("item") String id, WebRequest request)
             throws IOException, URISyntaxException, ResourceNotAvailableException {
-        RequestContext.storeInThreadLocal(context);
-
         if (!this.dao.hasSubscription(id)) {
             throw new ResourceNotAvailableException("The subscription is not available: "+id);
         }
 
+        OptionalLong version = this.dao.getSubscriptionVersion(id);
+        if (version.isPresent() && request.checkNotModified(createETag(version.getAsLong(), null))) {
+            return null;
+        }
+
+        RequestContext.storeInThreadLocal(context);
+
         try {
             Subscription sub = this.dao.getSubscription(id);
             return sub;
@@ -179,9 +201,106 @@ public class SubscriptionsController extends BaseController{
         }
     }
 
+    @RequestMapping(value = "/bulk", method = POST)
+    public Map<String, List<BulkResult>> bulk(@RequestBody BulkRequest request) throws ResourceNotFoundException {
+        final User user;
+        try {
+            user = securityService.resolveCurrentUser();
+        } catch (NotAuthenticatedException ex) {
+            LOG.warn(ex.getMessage());
+            LOG.trace(ex.getMessage(), ex);
+            throw new ResourceWithIdNotFoundException("me");
+        }
+
+        RequestContext.storeInThreadLocal(context);
+
+        try {
+            String fullUrl = context.getFullUrl();
+            String baseUrl = fullUrl.substring(0, fullUrl.lastIndexOf('/'));
+
+            Map<String, List<BulkResult>> result = new LinkedHashMap<>();
+            if (request.getCreate() != null && !request.getCreate().isEmpty()) {
+                List<BulkResult> created = this.manager.subscribe(new ArrayList<>(request.getCreate()), user);
+                created.stream()
+                        .filter(BulkResult::isSuccess)
+                        .forEach(r -> r.setHref(String.format("%s/%s", baseUrl, r.getId())));
+                result.put("create", created);
+            }
+            if (request.getUpdate() != null && !request.getUpdate().isEmpty()) {
+                result.put("update", this.manager.updateSubscriptions(request.getUpdate().stream()
+                        .map(this::toUpdate)
+                        .collect(Collectors.toList()), user));
+            }
+            if (request.getDelete() != null && !request.getDelete().isEmpty()) {
+                result.put("delete", this.manager.removeSubscriptions(request.getDelete(), user));
+            }
+            return result;
+        }
+        finally {
+            RequestContext.removeThreadLocal();
+        }
+    }
+
+    /**
+     * an update without the enabled flag keeps the current state
+     */
+    private SubscriptionUpdate toUpdate(SubscriptionUpdateInstance update) {
+        if (update == null) {
+            return null;
+        }
+
+        boolean enabled;
+        if (update.getEnabled() != null) {
+            enabled = update.getEnabled();
+        }
+        else {
+            enabled = true;
+            try {
+                Subscription current = this.dao.getSubscription(update.getId());
+                if (current instanceof SubscriptionImpl) {
+                    enabled = !Boolean.FALSE.equals(((SubscriptionImpl) current).getEnabled());
+                }
+            } catch (UnknownSubscriptionException ex) {
+                LOG.debug(ex.getMessage());
+            }
+        }
+
+        boolean effectiveEnabled = enabled;
+        return new SubscriptionUpdate() {
+            private String id = update.getId();
+
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public void setId(String id) {
+                this.id = id;
+            }
+
+            @Override
+            public String getEndOfLife() {
+                return update.getEndOfLife();
+            }
+
+            @Override
+            public boolean getEnabled() {
+                return effectiveEnabled;
+            }
+        };
+    }
+
+    /**
+     * updates a subscription. With an If-Match header, the update is only
+     * applied if the subscription is still in the version of one of the
+     * given entity tags.
+     */
     @RequestMapping(value = "/{item}", method = PUT)
     public ResponseEntity<?> updateSubscription(@RequestBody SubscriptionUpdate subDef,
-            @PathVariable("item") String id) throws InvalidSubscriptionException, ResourceNotFoundException {
+            @PathVariable("item") String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws InvalidSubscriptionException, ResourceNotFoundException, PreconditionFailedException {
         subDef.setId(id);
         final User user;
         try {
@@ -192,8 +311,30 @@ public class SubscriptionsController extends BaseController{
             throw new ResourceWithIdNotFoundException(id);
         }
 
-        this.manager.updateSubscription(subDef, user);
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            if (ifMatch != null && !this.dao.hasSubscription(id)) {
+                throw new PreconditionFailedException("The subscription does not exist: "+id);
+            }
+            this.manager.updateSubscription(subDef, user);
+        }
+        else {
+            Set<Long> expected = parseVersions(ifMatch);
+            OptionalLong current = this.dao.getSubscriptionVersion(id);
+            if (!current.isPresent() || !expected.contains(current.getAsLong())) {
+                throw new PreconditionFailedException("The subscription has been modified: "+id);
+            }
 
+            try {
+                this.manager.updateSubscription(subDef, user, current.getAsLong());
+            } catch (SubscriptionModifiedException ex) {
+                throw new PreconditionFailedException(ex.getMessage(), ex);
+            }
+        }
+
+        OptionalLong version = this.dao.getSubscriptionVersion(id);
+        if (version.isPresent()) {
+            return ResponseEntity.noContent().eTag(createETag(version.getAsLong(), null)).build();
+        }
         return ResponseEntity.noContent().build();
     }
 
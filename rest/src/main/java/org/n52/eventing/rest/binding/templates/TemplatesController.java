@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -58,6 +58,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
@@ -86,7 +87,7 @@ public class TemplatesController extends BaseController {
 
     @JsonView(Views.TemplateOverview.class)
     @RequestMapping(value = "", method = RequestMethod.GET)
-    public ResourceCollectionWithMetadata<TemplateDefinition> getTemplates() throws IOException, URISyntaxException, InvalidPaginationException {
+    public ResourceCollectionWithMetadata<TemplateDefinition> getTemplates(WebRequest request) throws IOException, URISyntaxException, InvalidPaginationException {
         RequestContext.storeInThreadLocal(context);
 
         Map<String, String[]> query = context.getParameters();
@@ -94,6 +95,10 @@ public class TemplatesController extends BaseController {
 
         try {
             TemplatesDao dao = this.daoFactory.newDao();
+            if (checkNotModified(request, dao, context)) {
+                return null;
+            }
+
             QueryResult<TemplateDefinition> result = query == null ? dao.getTemplates() : dao.getTemplates(query);
 
             return new ResourceCollectionWithMetadata<>(result.getResult(), new ResourceCollectionWithMetadata.Metadata(result.getTotalHits(), page));
@@ -106,8 +111,8 @@ public class TemplatesController extends BaseController {
 
     @JsonView(Views.TemplateExpanded.class)
     @RequestMapping(path = "", params = {"expanded=true"})
-    public ResourceCollectionWithMetadata<TemplateDefinition> getTemplatesExpanded() throws IOException, URISyntaxException, InvalidPaginationException {
-        return getTemplates();
+    public ResourceCollectionWithMetadata<TemplateDefinition> getTemplatesExpanded(WebRequest request) throws IOException, URISyntaxException, InvalidPaginationException {
+        return getTemplates(request);
     }
 
     @JsonView(Views.TemplateExpanded.class)
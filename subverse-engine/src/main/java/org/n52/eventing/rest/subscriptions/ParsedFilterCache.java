@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.n52.eventing.rest.statistics.CacheStatistics;
+
+/**
+ * A bounded cache of parsed filter instances, keyed by the SHA-256 hash of the
+ * filter text and evicting the least recently used. The cached objects are
+ * never handed out: every caller gets its own copy, so that the engine may
+ * modify it.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class ParsedFilterCache {
+
+    private final int capacity;
+    private final Map<String, XmlObject> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity the maximum number of cached filters, 0 disables the
+     * cache
+     */
+    ParsedFilterCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.entries = new LinkedHashMap<String, XmlObject>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XmlObject> eldest) {
+                return size() > ParsedFilterCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @param filterInstance the filter text
+     * @return a parsed filter for exclusive use by the caller
+     * @throws XmlException if the filter is not valid XML
+     */
+    XmlObject parse(String filterInstance) throws XmlException {
+        if (this.capacity == 0) {
+            return XmlObject.Factory.parse(filterInstance);
+        }
+
+        String key = hash(filterInstance);
+        XmlObject cached;
+        synchronized (this.entries) {
+            cached = this.entries.get(key);
+        }
+
+        if (cached != null) {
+            this.hits.incrementAndGet();
+            synchronized (cached) {
+                return cached.copy();
+            }
+        }
+
+        this.misses.incrementAndGet();
+        XmlObject parsed = XmlObject.Factory.parse(filterInstance);
+        XmlObject master = parsed.copy();
+        synchronized (this.entries) {
+            this.entries.put(key, master);
+        }
+        return parsed;
+    }
+
+    long getHits() {
+        return this.hits.get();
+    }
+
+    long getMisses() {
+        return this.misses.get();
+    }
+
+    int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    CacheStatistics getStatistics() {
+        return new CacheStatistics(this.capacity, size(), getHits(), getMisses());
+    }
+
+    private static String hash(String filterInstance) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(filterInstance.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
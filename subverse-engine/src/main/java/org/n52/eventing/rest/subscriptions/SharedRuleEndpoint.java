@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.n52.subverse.delivery.DeliveryEndpoint;
+import org.n52.subverse.delivery.Streamable;
+
+/**
+ * The endpoint of a rule shared by several subscriptions. A match is passed on
+ * to the endpoints of all subscriptions currently attached to the rule.
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+class SharedRuleEndpoint implements DeliveryEndpoint {
+
+    private final List<DeliveryEndpoint> subscribers = new CopyOnWriteArrayList<>();
+
+    void attach(DeliveryEndpoint endpoint) {
+        this.subscribers.add(endpoint);
+    }
+
+    /**
+     * @return true if no subscriber is left
+     */
+    boolean detach(DeliveryEndpoint endpoint) {
+        this.subscribers.remove(endpoint);
+        return this.subscribers.isEmpty();
+    }
+
+    int size() {
+        return this.subscribers.size();
+    }
+
+    /**
+     * delivers to the subscribers one after another on the calling thread.
+     * Each subscriber is a {@link BrokeringDeliveryEndpoint} already fanning
+     * out to its endpoints on the common pool.
+     */
+    @Override
+    public void deliver(Optional<Streamable> o, boolean asRaw) {
+        for (DeliveryEndpoint e : this.subscribers) {
+            e.deliver(o, asRaw);
+        }
+    }
+
+    @Override
+    public String getEffectiveLocation() {
+        return "/dev/null";
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
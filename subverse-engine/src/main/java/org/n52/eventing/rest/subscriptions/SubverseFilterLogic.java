@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -28,19 +28,29 @@
 package org.n52.eventing.rest.subscriptions;
 
 import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
+import org.n52.eventing.rest.Configuration;
 import org.n52.eventing.rest.deliverymethods.DeliveryMethodInstance;
 import org.n52.eventing.rest.deliverymethods.DeliveryMethodsService;
+import org.n52.eventing.rest.eventlog.EventLogBroadcaster;
+import org.n52.eventing.rest.eventlog.EventLogCapacityResolver;
 import org.n52.eventing.rest.eventlog.EventLogEndpoint;
 import org.n52.eventing.rest.eventlog.EventLogStore;
+import org.n52.eventing.rest.eventlog.EventLogWriter;
 import org.n52.eventing.rest.parameters.ParameterInstance;
+import org.n52.eventing.rest.statistics.CacheStatistics;
+import org.n52.eventing.rest.statistics.MatchStatistics;
 import org.n52.eventing.rest.templates.FilterInstanceGenerator;
 import org.n52.eventing.rest.model.TemplateDefinition;
 import org.n52.eventing.rest.model.impl.TemplateDefinitionImpl;
@@ -51,37 +61,136 @@ import org.n52.subverse.subscription.SubscribeOptions;
 import org.n52.subverse.subscription.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
+ * Registers subscriptions at the subverse {@link FilterEngine}. Subscriptions
+ * with the same filter instance for the same publication share a single rule
+ * at the engine, which passes its matches on to all of them. The effort per
+ * message thus depends on the number of distinct rules only.
+ * <p>
+ * Parsed filters are cached, so that registering a rule again (e.g. after a
+ * restart or once all of its subscriptions had been removed) does not parse
+ * its XML again.
  *
  * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
  */
-public class SubverseFilterLogic implements FilterLogic {
+public class SubverseFilterLogic implements FilterLogic, InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(SubverseFilterLogic.class);
+    private static final int DEFAULT_FILTER_CACHE_SIZE = 1000;
 
 
     @Autowired
     private EventLogStore eventLogStore;
 
+    @Autowired(required = false)
+    private EventLogBroadcaster eventLogBroadcaster;
+
+    @Autowired(required = false)
+    private EventLogCapacityResolver eventLogCapacityResolver;
+
+    @Autowired(required = false)
+    private EventLogWriter eventLogWriter;
+
+    @Autowired(required = false)
+    private MatchStatistics matchStatistics;
+
     @Autowired
     private DeliveryMethodsService deliveryMethodsDao;
 
     @Autowired
     private FilterEngine engine;
 
+    @Autowired(required = false)
+    private Configuration config;
+
     private final FilterInstanceGenerator filterInstanceGenerator = new FilterInstanceGenerator();
-    private final Map<String, Subscription> subscriptionToRuleMap = new HashMap<>();
+    private final Map<String, Rule> subscriptionToRuleMap = new HashMap<>();
+    private final Map<String, SharedRule> sharedRules = new ConcurrentHashMap<>();
+    private ParsedFilterCache filterCache = new ParsedFilterCache(DEFAULT_FILTER_CACHE_SIZE);
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.config != null) {
+            this.filterCache = new ParsedFilterCache(this.config.getParameterAsInt("subscriptions.filterCache.size")
+                    .orElse(DEFAULT_FILTER_CACHE_SIZE));
+        }
+    }
 
     @Override
     public String internalSubscribe(org.n52.eventing.rest.model.Subscription sub, TemplateDefinition template) throws InvalidSubscriptionException {
+        Rule rule = register(sub, template);
+
+        /*
+        * remember the rule for later removal. A rule registered before
+        * under the same id is replaced.
+        */
+        Rule previous;
+        synchronized (this) {
+            previous = this.subscriptionToRuleMap.put(sub.getId(), rule);
+        }
+        if (previous != null) {
+            LOG.warn("Replacing the rule of subscription {}", sub.getId());
+            retire(previous);
+        }
+
+        return sub.getId();
+    }
+
+    @Override
+    public Map<org.n52.eventing.rest.model.Subscription, InvalidSubscriptionException> internalSubscribe(
+            Map<org.n52.eventing.rest.model.Subscription, TemplateDefinition> subscriptions) {
+        Map<org.n52.eventing.rest.model.Subscription, InvalidSubscriptionException> failures = new LinkedHashMap<>();
+        Map<String, Rule> registered = new HashMap<>(subscriptions.size() * 2);
+        subscriptions.forEach((org.n52.eventing.rest.model.Subscription sub, TemplateDefinition template) -> {
+            try {
+                Rule rule = register(sub, template);
+                registered.put(sub.getId(), rule);
+            } catch (InvalidSubscriptionException ex) {
+                failures.put(sub, ex);
+            } catch (RuntimeException ex) {
+                failures.put(sub, new InvalidSubscriptionException(ex.getMessage(), ex));
+            }
+        });
+
+        /*
+        * remember all of them for later removal at once
+        */
+        List<Rule> replaced = new ArrayList<>();
+        synchronized (this) {
+            registered.forEach((String id, Rule rule) -> {
+                Rule previous = this.subscriptionToRuleMap.put(id, rule);
+                if (previous != null) {
+                    replaced.add(previous);
+                }
+            });
+        }
+        replaced.forEach(this::retire);
+
+        return failures;
+    }
+
+    private Rule register(org.n52.eventing.rest.model.Subscription sub, TemplateDefinition template) throws InvalidSubscriptionException {
         if (!(sub instanceof SubscriptionImpl)) {
             throw new InvalidSubscriptionException("Unsupported subscription type: "+ sub);
         }
 
         SubscriptionImpl subscription = (SubscriptionImpl) sub;
 
+        /*
+        * new subscriptions get their id here, so that the rule map and the
+        * event log use the same one
+        */
+        if (subscription.getId() == null) {
+            subscription.setId(UUID.randomUUID().toString());
+        }
+
+        int capacity = this.eventLogCapacityResolver != null
+                ? this.eventLogCapacityResolver.resolve(subscription)
+                : EventLogCapacityResolver.DEFAULT_CAPACITY;
+
         /*
         * resolve delivery endpoint
         */
@@ -98,11 +207,12 @@ public class SubverseFilterLogic implements FilterLogic {
                 throw new RuntimeException(ex);
             }
         }).collect(Collectors.toList());
-        endpoints.add(new EventLogEndpoint(20, subscription, eventLogStore));
+        endpoints.add(new EventLogEndpoint(capacity, subscription, eventLogStore, eventLogBroadcaster,
+                eventLogWriter, matchStatistics));
         BrokeringDeliveryEndpoint brokeringEndpoint = new BrokeringDeliveryEndpoint(endpoints);
 
         /*
-        * register at engine
+        * attach to the rule of the filter instance
         */
 
         String filterInstance = null;
@@ -116,35 +226,97 @@ public class SubverseFilterLogic implements FilterLogic {
                 (TemplateDefinitionImpl) template, params.values());
         }
 
-        try {
-            Subscription subverseSub = wrapToSubverseSubscription(subscription,
-                    filterInstance, subscription.getPublicationId());
-            this.engine.register(subverseSub, brokeringEndpoint);
-
-            /*
-            * remember subverseSub for later removal
-            */
-            synchronized (this) {
-                this.subscriptionToRuleMap.put(subscription.getId(), subverseSub);
+        Rule rule = new Rule(canonicalize(subscription.getPublicationId(), filterInstance), filterInstance,
+                subscription.getPublicationId(), brokeringEndpoint);
+        attach(rule);
+        return rule;
+    }
+
+    /**
+     * @return the identity of a rule: the publication and the trimmed filter
+     * instance. Whitespace within the filter is kept, as it may be part of a
+     * literal.
+     */
+    private static String canonicalize(String pubId, String filterInstance) {
+        String filter = filterInstance != null ? filterInstance.trim() : "";
+        return pubId + "\n" + filter;
+    }
+
+    /**
+     * attaches the subscription to the shared rule of its filter. The rule is
+     * registered at the engine by its first subscription.
+     */
+    private void attach(Rule rule) throws InvalidSubscriptionException {
+        while (true) {
+            SharedRule shared = this.sharedRules.computeIfAbsent(rule.key, SharedRule::new);
+            synchronized (shared) {
+                if (shared.discarded) {
+                    /*
+                    * the last subscription left in the meantime
+                    */
+                    continue;
+                }
+
+                if (shared.endpoint.size() == 0) {
+                    try {
+                        Subscription subverseSub = wrapToSubverseSubscription(shared.id,
+                                rule.filterInstance, rule.publicationId);
+                        this.engine.register(subverseSub, shared.endpoint);
+                    } catch (SubscriptionRegistrationException ex) {
+                        discard(shared);
+                        LOG.warn("Could not register subscription at engine");
+                        throw new InvalidSubscriptionException(ex.getMessage(), ex);
+                    } catch (InvalidSubscriptionException ex) {
+                        discard(shared);
+                        throw ex;
+                    }
+                }
+                else {
+                    LOG.debug("Sharing rule {} with {} other subscriptions", shared.id, shared.endpoint.size());
+                }
+
+                shared.endpoint.attach(rule.endpoint);
+                rule.shared = shared;
+                return;
             }
-        } catch (SubscriptionRegistrationException ex) {
-            LOG.warn("Could not register subscription at engine");
-            throw new InvalidSubscriptionException(ex.getMessage(), ex);
         }
+    }
+
+    /**
+     * detaches the subscription from its shared rule. The rule is removed
+     * from the engine with its last subscription.
+     */
+    private void detach(Rule rule) {
+        SharedRule shared = rule.shared;
+        synchronized (shared) {
+            if (!shared.endpoint.detach(rule.endpoint)) {
+                return;
+            }
+
+            discard(shared);
+            try {
+                this.engine.removeSubscription(shared.id);
+            } catch (org.n52.subverse.subscription.UnknownSubscriptionException ex) {
+                LOG.warn("Could not remove rule from engine", ex);
+            }
+        }
+    }
 
-        return UUID.randomUUID().toString();
+    private void discard(SharedRule shared) {
+        shared.discarded = true;
+        this.sharedRules.remove(shared.key, shared);
     }
 
-    private Subscription wrapToSubverseSubscription(SubscriptionImpl subscription,
+    private Subscription wrapToSubverseSubscription(String id,
             String filterInstance, String pubId) throws InvalidSubscriptionException {
         try {
             XmlObject filterXml = null;
             if (filterInstance != null) {
-                filterXml = XmlObject.Factory.parse(filterInstance);
+                filterXml = this.filterCache.parse(filterInstance);
             }
 
             Subscription result = new Subscription(
-                    subscription.getId(), new SubscribeOptions(pubId,
+                    id, new SubscribeOptions(pubId,
                             null,
                             filterXml,
                             null,
@@ -157,17 +329,143 @@ public class SubverseFilterLogic implements FilterLogic {
         }
     }
 
+    @Override
+    public Optional<CacheStatistics> getFilterCacheStatistics() {
+        return Optional.of(this.filterCache.getStatistics());
+    }
+
+    @Override
+    public boolean pause(String id) {
+        Rule rule = getRule(id);
+        if (rule == null) {
+            return false;
+        }
+
+        synchronized (rule) {
+            if (rule.removed) {
+                return false;
+            }
+            if (!rule.paused) {
+                detach(rule);
+                rule.paused = true;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean resume(String id) {
+        Rule rule = getRule(id);
+        if (rule == null) {
+            return false;
+        }
+
+        synchronized (rule) {
+            if (rule.removed) {
+                return false;
+            }
+            if (!rule.paused) {
+                return true;
+            }
+
+            try {
+                attach(rule);
+                rule.paused = false;
+                return true;
+            } catch (InvalidSubscriptionException ex) {
+                LOG.warn("Could not resume subscription", ex);
+                return false;
+            }
+        }
+    }
+
     @Override
     public void remove(String id) {
-        Subscription sub;
+        Rule rule;
         synchronized (this) {
-            sub = this.subscriptionToRuleMap.get(id);
+            rule = this.subscriptionToRuleMap.remove(id);
         }
 
-        try {
-            this.engine.removeSubscription(sub.getId());
-        } catch (org.n52.subverse.subscription.UnknownSubscriptionException ex) {
-            LOG.warn("Could not remove subscription", ex);
+        if (rule == null) {
+            LOG.info("subscription not found: {}", id);
+            return;
+        }
+
+        retire(rule);
+    }
+
+    /**
+     * detaches a rule for good, so that a concurrent resume cannot attach it
+     * again
+     */
+    private void retire(Rule rule) {
+        synchronized (rule) {
+            rule.removed = true;
+            if (!rule.paused) {
+                detach(rule);
+                rule.paused = true;
+            }
+        }
+    }
+
+    private Rule getRule(String id) {
+        Rule rule;
+        synchronized (this) {
+            rule = this.subscriptionToRuleMap.get(id);
+        }
+
+        if (rule == null) {
+            LOG.info("subscription not found: {}", id);
         }
+        return rule;
     }
+
+    /**
+     * a subscription with everything needed to attach it to a shared rule
+     * again after it has been paused
+     */
+    private static final class Rule {
+
+        private final String key;
+        private final String filterInstance;
+        private final String publicationId;
+        private final DeliveryEndpoint endpoint;
+
+        /*
+        * guarded by the rule
+        */
+        private SharedRule shared;
+        private boolean paused;
+        private boolean removed;
+
+        private Rule(String key, String filterInstance, String publicationId, DeliveryEndpoint endpoint) {
+            this.key = key;
+            this.filterInstance = filterInstance;
+            this.publicationId = publicationId;
+            this.endpoint = endpoint;
+        }
+
+    }
+
+    /**
+     * a rule registered once at the engine for all subscriptions with the same
+     * filter instance and publication
+     */
+    private static final class SharedRule {
+
+        private final String key;
+        private final String id = UUID.randomUUID().toString();
+        private final SharedRuleEndpoint endpoint = new SharedRuleEndpoint();
+
+        /*
+        * guarded by the shared rule
+        */
+        private boolean discarded;
+
+        private SharedRule(String key) {
+            this.key = key;
+        }
+
+    }
+
 }
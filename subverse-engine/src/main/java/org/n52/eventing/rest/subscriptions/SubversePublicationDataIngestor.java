@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2016-2020 52°North Initiative for Geospatial Open Source
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
  * Software GmbH
  *
  * This program is free software; you can redistribute it and/or modify it under
@@ -28,6 +28,7 @@
 package org.n52.eventing.rest.subscriptions;
 
 import org.n52.eventing.rest.publications.PublicationDataIngestor;
+import org.n52.eventing.rest.statistics.MatchStatistics;
 import org.n52.subverse.engine.FilterEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,16 +45,27 @@ public class SubversePublicationDataIngestor implements PublicationDataIngestor<
     @Autowired
     private FilterEngine engine;
 
+    @Autowired(required = false)
+    private MatchStatistics statistics;
+
     @Override
     public void ingestData(Object data, String publicationId) {
         LOG.info("Ingest data: {}", data.toString());
+        recordMessage(publicationId);
         engine.filterMessage(data, publicationId);
     }
 
     @Override
     public void ingestData(Object data, String publicationId, String mimeType) {
         LOG.info("Ingest data with mimeType {}: {}", mimeType, data.toString());
+        recordMessage(publicationId);
         engine.filterMessage(data, publicationId, mimeType);
     }
 
+    private void recordMessage(String publicationId) {
+        if (this.statistics != null && publicationId != null) {
+            this.statistics.recordMessage(publicationId);
+        }
+    }
+
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class ParsedFilterCacheTest {
+
+    private static final String FILTER_A = "<filter><value>a</value></filter>";
+    private static final String FILTER_B = "<filter><value>b</value></filter>";
+    private static final String FILTER_C = "<filter><value>c</value></filter>";
+
+    @Test
+    public void testEviction() throws Exception {
+        ParsedFilterCache cache = new ParsedFilterCache(2);
+        cache.parse(FILTER_A);
+        cache.parse(FILTER_B);
+
+        /*
+        * A was used more recently than B, so C evicts B
+        */
+        cache.parse(FILTER_A);
+        cache.parse(FILTER_C);
+        MatcherAssert.assertThat(cache.size(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(cache.getHits(), CoreMatchers.is(1L));
+        MatcherAssert.assertThat(cache.getMisses(), CoreMatchers.is(3L));
+
+        cache.parse(FILTER_A);
+        MatcherAssert.assertThat(cache.getHits(), CoreMatchers.is(2L));
+        cache.parse(FILTER_B);
+        MatcherAssert.assertThat(cache.getMisses(), CoreMatchers.is(4L));
+        MatcherAssert.assertThat(cache.size(), CoreMatchers.is(2));
+    }
+
+    @Test
+    public void testHitsAreCopies() throws Exception {
+        ParsedFilterCache cache = new ParsedFilterCache(10);
+        XmlObject first = cache.parse(FILTER_A);
+        XmlObject second = cache.parse(FILTER_A);
+        MatcherAssert.assertThat(first == second, CoreMatchers.is(false));
+
+        XmlCursor cursor = second.newCursor();
+        cursor.toFirstChild();
+        cursor.toFirstChild();
+        cursor.setTextValue("changed");
+        cursor.dispose();
+        MatcherAssert.assertThat(second.xmlText().contains("changed"), CoreMatchers.is(true));
+
+        XmlObject third = cache.parse(FILTER_A);
+        MatcherAssert.assertThat(third == second, CoreMatchers.is(false));
+        MatcherAssert.assertThat(third.xmlText(), CoreMatchers.is(first.xmlText()));
+        MatcherAssert.assertThat(third.xmlText().contains("changed"), CoreMatchers.is(false));
+        MatcherAssert.assertThat(cache.getHits(), CoreMatchers.is(2L));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ParsedFilterCache cache = new ParsedFilterCache(0);
+        XmlObject first = cache.parse(FILTER_A);
+        XmlObject second = cache.parse(FILTER_A);
+
+        MatcherAssert.assertThat(first == second, CoreMatchers.is(false));
+        MatcherAssert.assertThat(cache.size(), CoreMatchers.is(0));
+        MatcherAssert.assertThat(cache.getHits(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(cache.getStatistics().getCapacity(), CoreMatchers.is(0));
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2016-2026 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License version 2 as publishedby the Free
+ * Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of the
+ * following licenses, the combination of the program with the linked library is
+ * not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed under
+ * the aforementioned licenses, is permitted by the copyright holders if the
+ * distribution is compliant with both the GNU General Public License version 2
+ * and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ */
+package org.n52.eventing.rest.subscriptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.n52.eventing.rest.deliverymethods.DeliveryMethodsService;
+import org.n52.eventing.rest.eventlog.EventLogStore;
+import org.n52.eventing.rest.model.impl.SubscriptionImpl;
+import org.n52.eventing.rest.model.impl.TemplateDefinitionImpl;
+import org.n52.eventing.rest.parameters.ParameterInstance;
+import org.n52.eventing.rest.templates.Definition;
+import org.n52.eventing.rest.templates.TemplateInstance;
+import org.n52.subverse.delivery.DeliveryEndpoint;
+import org.n52.subverse.engine.FilterEngine;
+import org.n52.subverse.engine.SubscriptionRegistrationException;
+import org.n52.subverse.subscription.Subscription;
+
+/**
+ *
+ * @author <a href="mailto:m.rieke@52north.org">Matthes Rieke</a>
+ */
+public class SubverseFilterLogicTest {
+
+    @Mock
+    private EventLogStore eventLogStore;
+
+    @Mock
+    private DeliveryMethodsService deliveryMethodsDao;
+
+    @Mock
+    private FilterEngine engine;
+
+    @InjectMocks
+    private SubverseFilterLogic logic;
+
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    public void testIdenticalSubscriptionsShareRule() throws Exception {
+        logic.internalSubscribe(createSubscription("sub-1", "pub-1"), null);
+        logic.internalSubscribe(createSubscription("sub-2", "pub-1"), null);
+        logic.internalSubscribe(createSubscription("sub-3", "pub-2"), null);
+
+        ArgumentCaptor<DeliveryEndpoint> endpoints = ArgumentCaptor.forClass(DeliveryEndpoint.class);
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(Subscription.class), endpoints.capture());
+
+        /*
+        * a match of the shared rule reaches both subscriptions
+        */
+        endpoints.getAllValues().get(0).deliver(Optional.empty(), false);
+        Mockito.verify(eventLogStore, Mockito.times(2)).addEvent(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    public void testRemovingLastSubscriptionRemovesRule() throws Exception {
+        logic.internalSubscribe(createSubscription("sub-1", "pub-1"), null);
+        logic.internalSubscribe(createSubscription("sub-2", "pub-1"), null);
+
+        logic.remove("sub-1");
+        Mockito.verify(engine, Mockito.never()).removeSubscription(Mockito.anyString());
+
+        logic.remove("sub-2");
+        Mockito.verify(engine, Mockito.times(1)).removeSubscription(Mockito.anyString());
+
+        /*
+        * a removed subscription cannot be resumed
+        */
+        MatcherAssert.assertThat(logic.resume("sub-2"), CoreMatchers.is(false));
+        Mockito.verify(engine, Mockito.times(1)).register(Mockito.any(), Mockito.any());
+
+        /*
+        * the next subscription registers a new rule
+        */
+        logic.internalSubscribe(createSubscription("sub-3", "pub-1"), null);
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testPausingOneOfTwoSubscriptions() throws Exception {
+        logic.internalSubscribe(createSubscription("sub-1", "pub-1"), null);
+        logic.internalSubscribe(createSubscription("sub-2", "pub-1"), null);
+
+        MatcherAssert.assertThat(logic.pause("sub-1"), CoreMatchers.is(true));
+        MatcherAssert.assertThat(logic.resume("sub-1"), CoreMatchers.is(true));
+        MatcherAssert.assertThat(logic.pause("sub-2"), CoreMatchers.is(true));
+
+        Mockito.verify(engine, Mockito.times(1)).register(Mockito.any(), Mockito.any());
+        Mockito.verify(engine, Mockito.never()).removeSubscription(Mockito.anyString());
+
+        /*
+        * pausing the remaining one removes the rule, resuming it registers
+        * the rule again
+        */
+        logic.pause("sub-1");
+        Mockito.verify(engine, Mockito.times(1)).removeSubscription(Mockito.anyString());
+        logic.resume("sub-2");
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testReplacedSubscriptionIsDetached() throws Exception {
+        logic.internalSubscribe(createSubscription("sub-1", "pub-1"), null);
+        logic.internalSubscribe(createSubscription("sub-1", "pub-2"), null);
+
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(), Mockito.any());
+        Mockito.verify(engine, Mockito.times(1)).removeSubscription(Mockito.anyString());
+    }
+
+    @Test
+    public void testWhitespaceLiteralsDoNotShareRule() throws Exception {
+        TemplateDefinitionImpl template = new TemplateDefinitionImpl("literal", null, null, new Definition(
+                "<fes:Literal xmlns:fes=\"http://www.opengis.net/fes/2.0\">${value}</fes:Literal>", ""));
+
+        logic.internalSubscribe(createSubscription("sub-1", "pub-1", " "), template);
+        logic.internalSubscribe(createSubscription("sub-2", "pub-1", ""), template);
+        logic.internalSubscribe(createSubscription("sub-3", "pub-1", " "), template);
+
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testRetryOnDiscardedRule() throws Exception {
+        /*
+        * the first registration fails while a second subscription for the
+        * same rule waits for the rule's lock. It has to register a new rule
+        * instead of attaching to the discarded one.
+        */
+        FilterEngine failing = Mockito.mock(FilterEngine.class);
+        Mockito.doThrow(SubscriptionRegistrationException.class).when(failing)
+                .register(Mockito.any(), Mockito.any());
+
+        AtomicReference<Thread> second = new AtomicReference<>();
+        AtomicReference<Exception> secondFailure = new AtomicReference<>();
+        AtomicInteger calls = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            if (calls.getAndIncrement() > 0) {
+                return null;
+            }
+
+            Thread t = new Thread(() -> {
+                try {
+                    logic.internalSubscribe(createSubscription("sub-2", "pub-1"), null);
+                }
+                catch (InvalidSubscriptionException e) {
+                    secondFailure.set(e);
+                }
+            });
+            second.set(t);
+            t.start();
+            while (t.getState() != Thread.State.BLOCKED) {
+                Thread.sleep(1);
+            }
+
+            failing.register(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(engine).register(Mockito.any(), Mockito.any());
+
+        Assertions.assertThrows(InvalidSubscriptionException.class,
+                () -> logic.internalSubscribe(createSubscription("sub-1", "pub-1"), null));
+        second.get().join(5000);
+
+        MatcherAssert.assertThat(secondFailure.get(), CoreMatchers.nullValue());
+        ArgumentCaptor<DeliveryEndpoint> endpoints = ArgumentCaptor.forClass(DeliveryEndpoint.class);
+        Mockito.verify(engine, Mockito.times(2)).register(Mockito.any(), endpoints.capture());
+        List<DeliveryEndpoint> rules = endpoints.getAllValues();
+        MatcherAssert.assertThat(rules.get(0) == rules.get(1), CoreMatchers.is(false));
+
+        /*
+        * the second subscription is attached to the new rule
+        */
+        rules.get(1).deliver(Optional.empty(), false);
+        Mockito.verify(eventLogStore, Mockito.times(1)).addEvent(Mockito.any(), Mockito.any(), Mockito.anyInt());
+
+        logic.remove("sub-2");
+        Mockito.verify(engine, Mockito.times(1)).removeSubscription(Mockito.anyString());
+    }
+
+    private static SubscriptionImpl createSubscription(String id, String publicationId) {
+        SubscriptionImpl sub = new SubscriptionImpl(id, null, null);
+        sub.setPublicationId(publicationId);
+        return sub;
+    }
+
+    private static SubscriptionImpl createSubscription(String id, String publicationId, String value) {
+        SubscriptionImpl sub = createSubscription(id, publicationId);
+        sub.setTemplate(new TemplateInstance("literal", Collections.singletonMap("value",
+                new ParameterInstance("value", value, "text"))));
+        return sub;
+    }
+
+}